@@ -0,0 +1,87 @@
+package org.rr.mobi4java.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.rr.mobi4java.MobiDocument;
+import org.rr.mobi4java.MobiReader;
+import org.rr.mobi4java.MobiWriter;
+
+/**
+ * Provides the books the benchmarks are running with. Next to the <code>japanese_fairytales.mobi</code> from the test resources of the
+ * api project, synthetic books with a generated text of a given size can be used. The book names are
+ * <ul>
+ * <li><code>japanese_fairytales</code> the test book. Use the system property <code>mobi.sample</code> to point to another file.</li>
+ * <li><code>synthetic-&lt;n&gt;MB</code> a new book with about <code>n</code> MB of generated html text.</li>
+ * </ul>
+ */
+class BenchmarkBooks {
+
+	static final String JAPANESE_FAIRYTALES = "japanese_fairytales";
+
+	private static final String SYNTHETIC_PREFIX = "synthetic-";
+
+	private static final String DEFAULT_SAMPLE = "../src/test/resources/japanese_fairytales.mobi";
+
+	private static final String[] WORDS = { "the", "fox", "emperor", "princess", "mountain", "river", "sword", "dragon", "village",
+			"and", "of", "to", "a", "in", "was", "that", "he", "she", "his", "her", "old", "young", "Märchen", "großen", "Kaiser" };
+
+	/**
+	 * Get the bytes of the mobi file with the given name.
+	 */
+	static byte[] load(String book) throws IOException {
+		if (JAPANESE_FAIRYTALES.equals(book)) {
+			return Files.readAllBytes(new File(System.getProperty("mobi.sample", DEFAULT_SAMPLE)).toPath());
+		} else if (book.startsWith(SYNTHETIC_PREFIX) && book.endsWith("MB")) {
+			int megaBytes = Integer.parseInt(book.substring(SYNTHETIC_PREFIX.length(), book.length() - 2));
+			return createSyntheticBook(megaBytes * 1024 * 1024);
+		}
+		throw new IllegalArgumentException("Unknown benchmark book " + book);
+	}
+
+	/**
+	 * Write the given mobi data to a temporary file which is deleted when the vm exits.
+	 */
+	static Path toTempFile(byte[] mobiData) throws IOException {
+		File file = File.createTempFile("mobi-benchmark", ".mobi");
+		file.deleteOnExit();
+		Files.write(file.toPath(), mobiData);
+		return file.toPath();
+	}
+
+	static byte[] write(MobiDocument doc) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new MobiWriter(doc).write(out);
+		return out.toByteArray();
+	}
+
+	private static byte[] createSyntheticBook(int textSize) throws IOException {
+		MobiDocument doc = new MobiReader().empty();
+		doc.setTextContent(createText(textSize));
+		return write(doc);
+	}
+
+	/**
+	 * Create a reproducible mobi html text with the given size in characters.
+	 */
+	static String createText(int size) {
+		Random random = new Random(size);
+		StringBuilder text = new StringBuilder(size + 64);
+		text.append("<html><head><guide></guide></head><body>");
+		int chapter = 0;
+		while (text.length() < size - 14) {
+			text.append("<h1>Chapter ").append(++chapter).append("</h1><p>");
+			int paragraphEnd = text.length() + 2000 + random.nextInt(2000);
+			while (text.length() < paragraphEnd && text.length() < size - 14) {
+				text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+			}
+			text.append("</p><mbp:pagebreak/>");
+		}
+		text.append("</body></html>");
+		return text.toString();
+	}
+}
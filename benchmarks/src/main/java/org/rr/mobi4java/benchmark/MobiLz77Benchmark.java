@@ -0,0 +1,70 @@
+package org.rr.mobi4java.benchmark;
+
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rr.mobi4java.util.MobiLz77;
+import org.rr.mobi4java.util.MobiLz77.COMPRESSION_LEVEL;
+
+/**
+ * Benchmarks for the PalmDOC compression of a single 4 KB text record, which is the record size used by mobi documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MobiLz77Benchmark {
+
+	private static final int RECORD_SIZE = 4096;
+
+	private byte[] record;
+
+	private byte[] encodedRecord;
+	
+	private byte[] decodeBuffer = new byte[RECORD_SIZE];
+
+	@Setup
+	public void setup() throws UnsupportedEncodingException {
+		byte[] text = BenchmarkBooks.createText(RECORD_SIZE * 4).getBytes("UTF-8");
+		record = new byte[RECORD_SIZE];
+		System.arraycopy(text, RECORD_SIZE, record, 0, RECORD_SIZE);
+		encodedRecord = MobiLz77.lz77Encode(record);
+	}
+
+	@Benchmark
+	public byte[] lz77Decode() {
+		return MobiLz77.lz77Decode(encodedRecord);
+	}
+
+	@Benchmark
+	public int lz77DecodeIntoBuffer() {
+		return MobiLz77.lz77Decode(encodedRecord, 0, encodedRecord.length, decodeBuffer, 0);
+	}
+
+	@Benchmark
+	public byte[] lz77Encode() {
+		return MobiLz77.lz77Encode(record);
+	}
+
+	@Benchmark
+	public byte[] lz77EncodeFast() {
+		return MobiLz77.lz77Encode(record, COMPRESSION_LEVEL.FAST);
+	}
+
+	@Benchmark
+	public byte[] lz77EncodeMax() {
+		return MobiLz77.lz77Encode(record, COMPRESSION_LEVEL.MAX);
+	}
+}
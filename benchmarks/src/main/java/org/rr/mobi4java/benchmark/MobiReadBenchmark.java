@@ -0,0 +1,76 @@
+package org.rr.mobi4java.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rr.mobi4java.MobiDocument;
+import org.rr.mobi4java.MobiMetaData;
+import org.rr.mobi4java.MobiReader;
+
+/**
+ * Benchmarks for reading a mobi file, the meta data of a mobi file and the text content of a mobi file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MobiReadBenchmark {
+
+	@Param({ BenchmarkBooks.JAPANESE_FAIRYTALES, "synthetic-1MB", "synthetic-8MB" })
+	public String book;
+
+	private byte[] mobiData;
+
+	private Path mobiFile;
+
+	private MobiDocument doc;
+
+	@Setup
+	public void setup() throws IOException {
+		mobiData = BenchmarkBooks.load(book);
+		mobiFile = BenchmarkBooks.toTempFile(mobiData);
+		doc = new MobiReader().read(new ByteArrayInputStream(mobiData));
+	}
+
+	@Benchmark
+	public MobiDocument read() throws IOException {
+		return new MobiReader().read(new ByteArrayInputStream(mobiData));
+	}
+
+	@Benchmark
+	public MobiDocument readMapped() throws IOException {
+		return new MobiReader().read(mobiFile);
+	}
+
+	@Benchmark
+	public String readMetaData() throws IOException {
+		MobiMetaData metaData = new MobiReader().readMetaData(mobiFile);
+		return metaData.getFullName();
+	}
+
+	@Benchmark
+	public String readMetaDataFromDocument() throws IOException {
+		MobiDocument doc = new MobiReader().read(new ByteArrayInputStream(mobiData));
+		return doc.getMetaData().getFullName();
+	}
+
+	@Benchmark
+	public String getTextContent() throws IOException {
+		return doc.getTextContent();
+	}
+}
@@ -0,0 +1,68 @@
+package org.rr.mobi4java.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rr.mobi4java.MobiDocument;
+import org.rr.mobi4java.MobiReader;
+
+/**
+ * Benchmarks for changing the text of a mobi document and for writing a mobi document. Only {@link #writeRoundTrip()} includes reading
+ * the document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MobiWriteBenchmark {
+
+	@Param({ BenchmarkBooks.JAPANESE_FAIRYTALES, "synthetic-1MB", "synthetic-8MB" })
+	public String book;
+
+	private byte[] mobiData;
+
+	private String text;
+
+	/** The document which is written by {@link #write()}. Writing does not change it, so it's read only once. */
+	private MobiDocument document;
+
+	@Setup
+	public void setup() throws IOException {
+		mobiData = BenchmarkBooks.load(book);
+		document = new MobiReader().read(new ByteArrayInputStream(mobiData));
+		text = document.getTextContent();
+	}
+
+	@Benchmark
+	public MobiDocument setTextContent() throws IOException {
+		MobiDocument doc = new MobiReader().empty();
+		doc.setTextContent(text);
+		return doc;
+	}
+
+	@Benchmark
+	public byte[] write() throws IOException {
+		return BenchmarkBooks.write(document);
+	}
+
+	@Benchmark
+	public MobiDocument writeRoundTrip() throws IOException {
+		MobiDocument doc = new MobiReader().read(new ByteArrayInputStream(mobiData));
+		doc.setTextContent(text);
+		return new MobiReader().read(new ByteArrayInputStream(BenchmarkBooks.write(doc)));
+	}
+}
@@ -2,9 +2,12 @@ package org.rr.mobi4java;
 
 import static org.apache.commons.lang3.StringUtils.EMPTY;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.List;
 
@@ -18,19 +21,70 @@ public class ByteUtils {
 		out.write(data != null ? data : new byte[length], 0, length);
 	}
 
+	/**
+	 * Write the given part of the {@link ByteBuffer} to the {@link OutputStream} without changing the position of the buffer.
+	 */
+	public static void write(ByteBuffer data, int offset, int length, OutputStream out) throws IOException {
+		if (data.hasArray()) {
+			out.write(data.array(), data.arrayOffset() + offset, length);
+		} else {
+			ByteBuffer source = slice(data, offset, length);
+			byte[] transfer = new byte[Math.min(length, 8192)];
+			while (source.hasRemaining()) {
+				int chunk = Math.min(source.remaining(), transfer.length);
+				source.get(transfer, 0, chunk);
+				out.write(transfer, 0, chunk);
+			}
+		}
+	}
+
+	/**
+	 * Write the lowest <code>length</code> bytes of the given value in big endian byte order.
+	 */
 	public static void writeInt(int data, int length, OutputStream out) throws IOException {
-		out.write(getBytes(data, new byte[length]), 0, length);
+		for (int shift = (length - 1) * 8; shift >= 0; shift -= 8) {
+			out.write(shift < 32 ? data >>> shift : 0);
+		}
 	}
 	
+	/**
+	 * Write the lowest <code>length</code> bytes of the given value in big endian byte order.
+	 */
 	public static void writeLong(long data, int length, OutputStream out) throws IOException {
-		out.write(getBytes(data, new byte[length]), 0, length);
+		for (int shift = (length - 1) * 8; shift >= 0; shift -= 8) {
+			out.write(shift < 64 ? (int) (data >>> shift) : 0);
+		}
+	}
+	
+	/**
+	 * Write the given value as forward encoded variable width value like it's used by the index records.
+	 * 
+	 * @see #getVarLen(byte[], int)
+	 */
+	public static void writeVarLen(int data, OutputStream out) throws IOException {
+		int shift = 28;
+		while (shift > 0 && (data >>> shift) == 0) {
+			shift -= 7;
+		}
+		for (; shift > 0; shift -= 7) {
+			out.write((data >>> shift) & 0x7f);
+		}
+		out.write((data & 0x7f) | 0x80);
+	}
+	
+	public static void writeZeros(int length, OutputStream out) throws IOException {
+		for (int i = 0; i < length; i++) {
+			out.write(0);
+		}
 	}
 
 	public static void writeString(String data, int length, OutputStream out) throws IOException {
 		byte[] s = getBytes(data);
-		byte[] b = new byte[length];
-		System.arraycopy(s, 0, b, 0, s.length);
-		out.write(b, 0, length);
+		if(s.length > length) {
+			throw new IllegalArgumentException("String '" + data + "' does not fit into " + length + " bytes");
+		}
+		out.write(s, 0, s.length);
+		writeZeros(length - s.length, out);
 	}
 
 	public static byte[] getBytes(byte[] buffer, int offset) {
@@ -45,15 +99,199 @@ public class ByteUtils {
 		return b;
 	}
 
+	public static byte[] getBytes(ByteBuffer buffer, int offset, int length) {
+		byte[] b = new byte[length];
+		ByteBuffer source = buffer.duplicate();
+		source.position(offset);
+		source.get(b, 0, length);
+		return b;
+	}
+
+	/**
+	 * Get a view of the given part of the {@link ByteBuffer}. The bytes are not copied, changes to the source buffer are visible in the
+	 * returned view.
+	 * 
+	 * @param buffer The source buffer.
+	 * @param offset The absolute offset of the first byte in the source buffer.
+	 * @param length The number of bytes the view covers.
+	 * @return A new {@link ByteBuffer} starting at position 0 and with the given length as limit.
+	 */
+	public static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer slice = buffer.duplicate();
+		slice.limit(offset + length);
+		slice.position(offset);
+		return slice.slice();
+	}
+
+	/**
+	 * Read the given number of bytes starting at the given file position. The position of the {@link FileChannel} is not changed.
+	 * 
+	 * @return A new {@link ByteBuffer} with the read bytes between position 0 and its limit.
+	 * @throws EOFException if the channel ends before the requested number of bytes could be read.
+	 */
+	public static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Expected " + length + " bytes at position " + position + " but the file ends at " + channel.size());
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	public static int getU8(byte[] buffer, int offset) {
+		return buffer[offset] & 0xff;
+	}
+	
+	public static int getU16(byte[] buffer, int offset) {
+		return (buffer[offset] & 0xff) << 8 | (buffer[offset + 1] & 0xff);
+	}
+	
+	public static int getU24(byte[] buffer, int offset) {
+		return (buffer[offset] & 0xff) << 16 | (buffer[offset + 1] & 0xff) << 8 | (buffer[offset + 2] & 0xff);
+	}
+	
+	/**
+	 * @return The unsigned 32 bit big endian value at the given offset.
+	 */
+	public static long getU32(byte[] buffer, int offset) {
+		return getInt32(buffer, offset) & 0xffffffffL;
+	}
+	
+	/**
+	 * @return The 32 bit big endian value at the given offset. Values above {@link Integer#MAX_VALUE} are negative, like the 0xFFFFFFFF
+	 *         which is used in many mobi header fields for undefined values.
+	 */
+	public static int getInt32(byte[] buffer, int offset) {
+		return (buffer[offset] & 0xff) << 24 | (buffer[offset + 1] & 0xff) << 16 | (buffer[offset + 2] & 0xff) << 8 | (buffer[offset + 3] & 0xff);
+	}
+	
+	public static int getU8(ByteBuffer buffer, int offset) {
+		return buffer.get(offset) & 0xff;
+	}
+	
+	public static int getU16(ByteBuffer buffer, int offset) {
+		return (buffer.get(offset) & 0xff) << 8 | (buffer.get(offset + 1) & 0xff);
+	}
+	
+	public static int getU24(ByteBuffer buffer, int offset) {
+		return (buffer.get(offset) & 0xff) << 16 | (buffer.get(offset + 1) & 0xff) << 8 | (buffer.get(offset + 2) & 0xff);
+	}
+	
+	/**
+	 * @return The unsigned 32 bit big endian value at the given offset.
+	 */
+	public static long getU32(ByteBuffer buffer, int offset) {
+		return getInt32(buffer, offset) & 0xffffffffL;
+	}
+	
+	/**
+	 * @return The 32 bit big endian value at the given offset. Values above {@link Integer#MAX_VALUE} are negative.
+	 */
+	public static int getInt32(ByteBuffer buffer, int offset) {
+		return (buffer.get(offset) & 0xff) << 24 | (buffer.get(offset + 1) & 0xff) << 16 | (buffer.get(offset + 2) & 0xff) << 8 | (buffer.get(offset + 3) & 0xff);
+	}
+	
+	/**
+	 * Read a forward encoded variable width value which is used by the index records. Each byte holds seven bits of the value, the last
+	 * byte of the value has the high bit set.
+	 * 
+	 * @return The value at the given offset.
+	 * @see #getVarLenSize(byte[], int)
+	 */
+	public static int getVarLen(byte[] buffer, int offset) {
+		int value = 0;
+		int b;
+		do {
+			b = buffer[offset++];
+			value = (value << 7) | (b & 0x7f);
+		} while ((b & 0x80) == 0);
+		return value;
+	}
+	
+	/**
+	 * @return The number of bytes of the forward encoded variable width value at the given offset.
+	 * @see #getVarLen(byte[], int)
+	 */
+	public static int getVarLenSize(byte[] buffer, int offset) {
+		int size = 1;
+		while ((buffer[offset + size - 1] & 0x80) == 0) {
+			size++;
+		}
+		return size;
+	}
+	
+	/**
+	 * @see #getVarLen(byte[], int)
+	 */
+	public static int getVarLen(ByteBuffer buffer, int offset) {
+		int value = 0;
+		int b;
+		do {
+			b = buffer.get(offset++);
+			value = (value << 7) | (b & 0x7f);
+		} while ((b & 0x80) == 0);
+		return value;
+	}
+	
+	/**
+	 * @see #getVarLenSize(byte[], int)
+	 */
+	public static int getVarLenSize(ByteBuffer buffer, int offset) {
+		int size = 1;
+		while ((buffer.get(offset + size - 1) & 0x80) == 0) {
+			size++;
+		}
+		return size;
+	}
+	
+	public static void putU8(byte[] buffer, int offset, int value) {
+		buffer[offset] = (byte) value;
+	}
+	
+	public static void putU16(byte[] buffer, int offset, int value) {
+		buffer[offset] = (byte) (value >>> 8);
+		buffer[offset + 1] = (byte) value;
+	}
+	
+	public static void putU24(byte[] buffer, int offset, int value) {
+		buffer[offset] = (byte) (value >>> 16);
+		buffer[offset + 1] = (byte) (value >>> 8);
+		buffer[offset + 2] = (byte) value;
+	}
+	
+	public static void putU32(byte[] buffer, int offset, long value) {
+		buffer[offset] = (byte) (value >>> 24);
+		buffer[offset + 1] = (byte) (value >>> 16);
+		buffer[offset + 2] = (byte) (value >>> 8);
+		buffer[offset + 3] = (byte) value;
+	}
+
 	public static int getInt(byte[] buffer, int offset, int length) {
-		return getInt(getBytes(buffer, offset, length));
+		int total = 0;
+		for (int i = offset; i < offset + length; i++) {
+			total = (total << 8) + (buffer[i] & 0xff);
+		}
+		return total;
 	}
 	
 	public static long getLong(byte[] buffer, int offset, int length) {
-		return getLong(getBytes(buffer, offset, length));
+		long total = 0;
+		for (int i = offset; i < offset + length; i++) {
+			total = (total << 8) + (buffer[i] & 0xff);
+		}
+		return total;
 	}
 
 	public static String getString(byte[] buffer, int offset, int length) {
+		return getString(buffer, offset, length, null);
+	}
+
+	public static String getString(ByteBuffer buffer, int offset, int length) {
+		if(buffer.hasArray()) {
+			return getString(buffer.array(), buffer.arrayOffset() + offset, length, null);
+		}
 		return getString(getBytes(buffer, offset, length));
 	}
 
@@ -62,15 +300,24 @@ public class ByteUtils {
 	}
 
 	public static String getString(byte[] buffer, String encoding) {
-		if(buffer == null || buffer.length == 0) {
+		if(buffer == null) {
+			return EMPTY;
+		}
+		return getString(buffer, 0, buffer.length, encoding);
+	}
+	
+	/**
+	 * Decodes the given range up to the first zero byte.
+	 */
+	public static String getString(byte[] buffer, int offset, int length, String encoding) {
+		if(buffer == null || length == 0) {
 			return EMPTY;
 		}
 		
-		int len = buffer.length;
-		int zeroIndex = -1;
-		for (int i = 0; i < len; i++) {
-			byte b = buffer[i];
-			if (b == 0) {
+		int end = offset + length;
+		int zeroIndex = end;
+		for (int i = offset; i < end; i++) {
+			if (buffer[i] == 0) {
 				zeroIndex = i;
 				break;
 			}
@@ -78,41 +325,21 @@ public class ByteUtils {
 
 		if (encoding != null) {
 			try {
-				if (zeroIndex == -1) {
-					return new String(buffer, encoding);
-				} else {
-					return new String(buffer, 0, zeroIndex, encoding);
-				}
+				return new String(buffer, offset, zeroIndex - offset, encoding);
 			} catch (java.io.UnsupportedEncodingException e) {
 				// let it fall through and use the default encoding
 			}
 		}
 
-		if (zeroIndex == -1) {
-			return new String(buffer);
-		} else {
-			return new String(buffer, 0, zeroIndex);
-		}
+		return new String(buffer, offset, zeroIndex - offset);
 	}
 
 	public static int getInt(byte[] buffer) {
-		int total = 0;
-		int len = buffer.length;
-		for (int i = 0; i < len; i++) {
-			total = (total << 8) + (buffer[i] & 0xff);
-		}
-
-		return total;
+		return getInt(buffer, 0, buffer.length);
 	}
 
 	public static long getLong(byte[] buffer) {
-		long total = 0;
-		int len = buffer.length;
-		for (int i = 0; i < len; i++) {
-			total = (total << 8) + (buffer[i] & 0xff);
-		}
-
-		return total;
+		return getLong(buffer, 0, buffer.length);
 	}
 
 	public static byte[] getBytes(int value, byte[] dest) {
@@ -146,10 +373,10 @@ public class ByteUtils {
 	}
 
 	public static List<byte[]> chunk(byte[] source, int chunksize) {
-		byte[][] ret = new byte[(int) Math.ceil(source.length / (double) chunksize)][chunksize];
+		byte[][] ret = new byte[(source.length + chunksize - 1) / chunksize][];
 		int start = 0;
 		for (int i = 0; i < ret.length; i++) {
-			ret[i] = Arrays.copyOfRange(source, start, start + chunksize);
+			ret[i] = Arrays.copyOfRange(source, start, Math.min(start + chunksize, source.length));
 			start += chunksize;
 		}
 		return Arrays.asList(ret);
@@ -169,6 +396,19 @@ public class ByteUtils {
 		return sb.toString();
 	}
 	
+	public static boolean startsWith(ByteBuffer a, byte[] b) {
+		if (a.remaining() >= b.length) {
+			int position = a.position();
+			for (int i = 0; i < b.length; i++) {
+				if (a.get(position + i) != b[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+	
 	public static boolean startsWith(byte[] a, byte[] b) {
 		if (a.length >= b.length) {
 			for (int i = 0; i < b.length; i++) {
@@ -1,8 +1,7 @@
 package org.rr.mobi4java;
 
 import static org.apache.commons.lang3.BooleanUtils.negate;
-import static org.rr.mobi4java.ByteUtils.getInt;
-import static org.rr.mobi4java.ByteUtils.getBytes;
+import static org.rr.mobi4java.ByteUtils.getInt32;
 import static org.rr.mobi4java.ByteUtils.getString;
 import static org.rr.mobi4java.ByteUtils.writeInt;
 import static org.rr.mobi4java.ByteUtils.writeString;
@@ -10,7 +9,10 @@ import static org.rr.mobi4java.ByteUtils.writeString;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -20,24 +22,49 @@ public class EXTHHeader {
 	private final int exthHeaderOffset;
 
 	private List<EXTHRecord> recordList;
+	
+	/** All records of {@link #recordList} grouped by their record type value, in file order. */
+	private Map<Integer, List<EXTHRecord>> recordsByType;
 
 	public EXTHHeader(int exthHeaderOffset) {
 		this.exthHeaderOffset = exthHeaderOffset;
 		this.recordList = new ArrayList<>();
+		this.recordsByType = new HashMap<>();
 	}
 
 	EXTHHeader readEXTHHeader(byte[] mobiHeader) throws IOException {
-		String identifier = getString(getBytes(mobiHeader, getOffset(0), 4));
-		int recordCount = getInt(getBytes(mobiHeader, getOffset(8), 4));
+		if (getOffset(12) > mobiHeader.length) {
+			throw new IOException("Truncated EXTH header at offset " + exthHeaderOffset);
+		}
+		String identifier = getString(mobiHeader, getOffset(0), 4);
+		int headerLength = getInt32(mobiHeader, getOffset(4));
+		int recordCount = getInt32(mobiHeader, getOffset(8));
 
 		if (negate(StringUtils.equals(identifier, "EXTH"))) {
 			throw new IOException("Expected to find EXTH header identifier EXTH but got '" + identifier + "' instead");
 		}
+		if (headerLength < 12 || getOffset(headerLength) > mobiHeader.length || getOffset(headerLength) < 0) {
+			throw new IOException("Invalid EXTH header length " + headerLength);
+		}
+		// each record needs at least the 8 bytes for its type and length
+		if (recordCount < 0 || recordCount > (headerLength - 12) / 8) {
+			throw new IOException("Invalid EXTH record count " + recordCount);
+		}
 
+		int end = getOffset(headerLength);
+		int offset = getOffset(12);
 		recordList = new ArrayList<>(recordCount);
+		recordsByType = new HashMap<>();
 		for (int i = 0; i < recordCount; i++) {
-			EXTHRecord exthRecord = EXTHRecordFactory.readEXTHRecord(mobiHeader, getRecordOffset(i));
-			recordList.add(exthRecord);
+			if (offset + 8 > end) {
+				throw new IOException("Truncated EXTH record " + i + " at offset " + offset);
+			}
+			int recordLength = getInt32(mobiHeader, offset + 4);
+			if (recordLength < 8 || recordLength > end - offset) {
+				throw new IOException("Invalid EXTH record length " + recordLength + " for record " + i + " at offset " + offset);
+			}
+			addRecord(EXTHRecordFactory.readEXTHRecord(mobiHeader, offset));
+			offset += recordLength;
 		}
 
 		return this;
@@ -58,15 +85,6 @@ public class EXTHHeader {
 		}
 	}
 
-	private int getRecordOffset(int record) {
-		int offset = getOffset(12);
-		for (int i = 0; i < record; i++) {
-			EXTHRecord exthRecord = recordList.get(i);
-			offset += exthRecord.getRecordLength();
-		}
-		return offset;
-	}
-
 	private int getOffset(int offset) {
 		return this.exthHeaderOffset + offset;
 	}
@@ -94,12 +112,46 @@ public class EXTHHeader {
 		return 12 + recordsLength + paddingSize(recordsLength);
 	}
 
+	/**
+	 * @return All records in file order. The result {@link List} is not modifiable.
+	 */
 	public List<EXTHRecord> getRecordList() {
-		return recordList;
+		return Collections.unmodifiableList(recordList);
+	}
+	
+	/**
+	 * @return All records of the given type in file order. The result {@link List} is not modifiable.
+	 */
+	public List<EXTHRecord> getRecords(EXTHRecord.RECORD_TYPE type) {
+		List<EXTHRecord> records = recordsByType.get(type.getType());
+		return records != null ? Collections.unmodifiableList(records) : Collections.<EXTHRecord>emptyList();
 	}
 	
 	public void addRecord(EXTHRecord record) {
 		recordList.add(record);
+		List<EXTHRecord> records = recordsByType.get(record.getRecordTypeValue());
+		if (records == null) {
+			records = new ArrayList<>(1);
+			recordsByType.put(record.getRecordTypeValue(), records);
+		}
+		records.add(record);
+	}
+	
+	public boolean removeRecord(EXTHRecord record) {
+		if (recordList.remove(record)) {
+			List<EXTHRecord> records = recordsByType.get(record.getRecordTypeValue());
+			records.remove(record);
+			if (records.isEmpty()) {
+				recordsByType.remove(record.getRecordTypeValue());
+			}
+			return true;
+		}
+		return false;
+	}
+	
+	public void removeAllRecords() {
+		recordList.clear();
+		recordsByType.clear();
 	}
 	
 	@Override
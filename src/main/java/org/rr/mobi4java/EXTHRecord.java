@@ -3,6 +3,7 @@ package org.rr.mobi4java;
 import static org.rr.mobi4java.ByteUtils.dumpByteArray;
 import static org.rr.mobi4java.ByteUtils.getBytes;
 import static org.rr.mobi4java.ByteUtils.getInt;
+import static org.rr.mobi4java.ByteUtils.getInt32;
 import static org.rr.mobi4java.ByteUtils.write;
 import static org.rr.mobi4java.ByteUtils.writeInt;
 
@@ -169,47 +170,73 @@ public class EXTHRecord {
 
 	private byte[] recordData;
 
+	/** The EXTH block this record was read from. The record data is only copied out of it if it's requested with {@link #getData()}. */
+	private byte[] slab;
+
+	private int slabOffset;
+
+	private int slabLength;
+
 	protected EXTHRecord(int recordType) {
 		this.recordType = recordType;
 	}
 	
 	EXTHRecord readEXTHRecord(byte[] mobiHeader, int offset) throws IOException {
-		int length = getInt(mobiHeader, offset + 4, 4);
+		int length = getInt32(mobiHeader, offset + 4);
 		if (length < 8) {
 			throw new IOException("Invalid EXTH record length");
 		}
-		recordData = getBytes(mobiHeader, offset + 8, length - 8);
+		slab = mobiHeader;
+		slabOffset = offset + 8;
+		slabLength = length - 8;
+		recordData = null;
 		return this;
 	}
 	
 	void writeEXTHRecord(OutputStream out) throws IOException {
 		writeInt(recordType, 4, out);
 		writeInt(getRecordLength(), 4, out);
-		write(recordData, getRecordDataLength(), out);
+		if (slab != null) {
+			out.write(slab, slabOffset, slabLength);
+		} else {
+			write(recordData, getRecordDataLength(), out);
+		}
 	}
 
 	public EXTHRecord.RECORD_TYPE getRecordType() {
 		return EXTHRecord.RECORD_TYPE.valueOf(recordType);
 	}
 	
+	int getRecordTypeValue() {
+		return recordType;
+	}
+	
 	protected void setRecordType(EXTHRecord.RECORD_TYPE recordType) {
 		this.recordType = recordType.type;
 	}
 
 	public byte[] getData() {
+		if (slab != null) {
+			recordData = getBytes(slab, slabOffset, slabLength);
+			slab = null;
+		}
 		return recordData;
 	}
 	
 	public void setData(byte[] recordData) {
 		this.recordData = recordData;
+		this.slab = null;
 	}
 
 	public int getIntData() {
+		if (slab != null) {
+			return getInt(slab, slabOffset, slabLength);
+		}
 		return getInt(recordData);
 	}
 	
 	public void setIntData(int value) {
-		recordData = getBytes(value, new byte[4]);
+		setData(getBytes(value, new byte[4]));
 	}
 
 	public int getRecordLength() {
@@ -217,6 +244,9 @@ public class EXTHRecord {
 	}
 
 	private int getRecordDataLength() {
+		if (slab != null) {
+			return slabLength;
+		}
 		return (recordData != null ? recordData.length : 0);
 	}
 
@@ -225,7 +255,7 @@ public class EXTHRecord {
 		return new ToStringBuilder(this)
 				.append("recordType", recordType)
 				.append("recordEnumType", RECORD_TYPE.valueOf(recordType))
-				.append("recordData", dumpByteArray(recordData))
+				.append("recordData", dumpByteArray(getData()))
 		.toString();
 	}
 }
@@ -1,6 +1,6 @@
 package org.rr.mobi4java;
 
-import static org.rr.mobi4java.ByteUtils.getInt;
+import static org.rr.mobi4java.ByteUtils.getInt32;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
@@ -117,7 +117,7 @@ public class EXTHRecordFactory {
 	}
 
 	static EXTHRecord readEXTHRecord(byte[] mobiHeader, int offset) throws IOException {
-		EXTHRecord record = createEXTHRecord(RECORD_TYPE.valueOf(getInt(mobiHeader, offset + 0, 4)));
+		EXTHRecord record = new EXTHRecord(getInt32(mobiHeader, offset + 0));
 		return record.readEXTHRecord(mobiHeader, offset);
 	}
 	
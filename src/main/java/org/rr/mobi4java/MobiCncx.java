@@ -0,0 +1,91 @@
+package org.rr.mobi4java;
+
+import static org.rr.mobi4java.ByteUtils.getBytes;
+import static org.rr.mobi4java.ByteUtils.getVarLen;
+import static org.rr.mobi4java.ByteUtils.getVarLenSize;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The strings of the CNCX records which are following the index data records. Index entries reference the strings with the values of the
+ * {@link MobiContentTagEntry.TAG_ENTRY_TYPE#NAME_OFFSET}, {@link MobiContentTagEntry.TAG_ENTRY_TYPE#DESC_OFFSET} and
+ * {@link MobiContentTagEntry.TAG_ENTRY_TYPE#AUTHOR_OFFSET} tags. The upper 16 bit of an offset select the CNCX record and the lower 16 bit
+ * the position of the string in this record.
+ *
+ * A string is only decoded when it's requested and is kept for all following requests of the same offset.
+ */
+public class MobiCncx {
+
+	static final MobiCncx EMPTY = new MobiCncx(Collections.<MobiContent>emptyList(), null);
+
+	private final List<MobiContent> records;
+
+	private final String encoding;
+
+	/** The decoded strings by their offset. Created with the first decoded string. */
+	private Map<Integer, String> strings;
+
+	/**
+	 * @param records The CNCX records in their order.
+	 * @param encoding The character encoding of the index.
+	 */
+	MobiCncx(List<MobiContent> records, String encoding) {
+		this.records = records;
+		this.encoding = encoding;
+	}
+
+	/**
+	 * Get the string at the given offset.
+	 *
+	 * @param offset The offset of the string like it's stored in the index entries.
+	 * @return The string or <code>null</code> if the offset is negative or does not point to a string.
+	 */
+	public synchronized String getString(int offset) {
+		if(offset < 0) {
+			return null;
+		}
+		if(strings == null) {
+			strings = new HashMap<>();
+		}
+		Integer key = Integer.valueOf(offset);
+		String string = strings.get(key);
+		if(string == null && !strings.containsKey(key)) {
+			string = readString(offset);
+			strings.put(key, string);
+		}
+		return string;
+	}
+
+	private String readString(int offset) {
+		int recordIndex = offset >>> 16;
+		int position = offset & 0xffff;
+		if(recordIndex >= records.size()) {
+			return null;
+		}
+		ByteBuffer record = records.get(recordIndex).getContentBuffer();
+		if(position >= record.limit()) {
+			return null;
+		}
+		try {
+			int length = getVarLen(record, position);
+			position += getVarLenSize(record, position);
+			if(position + length > record.limit()) {
+				return null;
+			}
+			return ByteUtils.getString(getBytes(record, position, length), encoding);
+		} catch (IndexOutOfBoundsException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return The number of CNCX records.
+	 */
+	public int getRecordCount() {
+		return records.size();
+	}
+}
@@ -1,43 +1,117 @@
 package org.rr.mobi4java;
 
+import static org.rr.mobi4java.ByteUtils.slice;
 import static org.rr.mobi4java.ByteUtils.write;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 public class MobiContent {
 	
 	public enum CONTENT_TYPE {
-		HEADER, CONTENT, INDEX, TAGX, TAG, IDXT, FLIS, FCIS, FDST, DATP, SRCS, CMET, AUDI, VIDE, END_OF_TEXT, 
+		HEADER, CONTENT, INDEX, TAGX, TAG, IDXT, FLIS, FCIS, FDST, DATP, SRCS, CMET, AUDI, VIDE, HUFF, CDIC, END_OF_TEXT, 
 		COVER, THUMBNAIL, IMAGE, UNKNOWN
 	};
 	
 	protected byte[] content;
 	
+	/**
+	 * The buffer the document was read from. As long as the record is not materialized into <code>content</code>, the record data is the
+	 * view between <code>sourceOffset</code> and <code>sourceOffset + sourceLength</code> of this buffer.
+	 */
+	private ByteBuffer source;
+	
+	private int sourceOffset;
+	
+	private int sourceLength;
+	
 	private CONTENT_TYPE type;
 	
+	/** Counts the changes made with {@link #setContent(byte[])}. */
+	private int modificationCount;
+	
 	MobiContent(byte[] content, CONTENT_TYPE type) {
 		this.content = content;
 		this.type = type;
 	}
 	
-	byte[] writeContent(OutputStream out) throws IOException {
-		write(content, out);
-		return content;
+	MobiContent(ByteBuffer source, int sourceOffset, int sourceLength, CONTENT_TYPE type) {
+		this.source = source;
+		this.sourceOffset = sourceOffset;
+		this.sourceLength = sourceLength;
+		this.type = type;
+	}
+	
+	void writeContent(OutputStream out) throws IOException {
+		if (isView()) {
+			write(source, sourceOffset, sourceLength, out);
+		} else {
+			write(content, out);
+		}
 	}
 
+	/**
+	 * Get the bytes of this record. Records which are still a view to the data the document was read from are copied with the first
+	 * invocation of this method. Changes to the returned array are applied to the record.
+	 * 
+	 * @return The record bytes.
+	 */
 	public byte[] getContent() {
+		if (isView()) {
+			content = ByteUtils.getBytes(source, sourceOffset, sourceLength);
+			source = null;
+		}
 		return content;
 	}
 
+	/**
+	 * Get a read only view of the bytes of this record. Other than {@link #getContent()}, the bytes of records which are still a view to
+	 * the data the document was read from are not copied.
+	 * 
+	 * @return A read only {@link ByteBuffer} with the record bytes between its position and limit.
+	 */
+	public ByteBuffer getContentBuffer() {
+		if (isView()) {
+			return slice(source, sourceOffset, sourceLength).asReadOnlyBuffer();
+		}
+		return ByteBuffer.wrap(content).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Detects the image format of this record by the magic numbers at the start of the record data.
+	 * 
+	 * @return The mime type of the record data, for example <code>image/jpeg</code>, or <code>null</code> if the record data is not a
+	 *         known image format.
+	 */
+	public String getMimeType() {
+		if (isView()) {
+			return MobiContentRecordFactory.getImageMimeType(source, sourceOffset, sourceLength);
+		}
+		return MobiContentRecordFactory.getImageMimeType(ByteBuffer.wrap(content), 0, content.length);
+	}
+
 	public void setContent(byte[] content) {
 		this.content = content;
+		this.source = null;
+		this.modificationCount++;
+	}
+	
+	int getModificationCount() {
+		return modificationCount;
+	}
+	
+	/**
+	 * @return <code>true</code> if this record has not been materialized or changed since the document was read.
+	 */
+	boolean isView() {
+		return source != null;
 	}
 	
 	public int getSize() {
-		return content.length;
+		return isView() ? sourceLength : content.length;
 	}
 
 	public CONTENT_TYPE getType() {
@@ -58,7 +132,7 @@ public class MobiContent {
 	public String toString() {
 		return new ToStringBuilder(this)
 				.append("contentType", getType())
-				.append("content", ByteUtils.dumpByteArray(content))
+				.append("content", ByteUtils.dumpByteArray(getContent()))
 				.toString();
 	}
 }
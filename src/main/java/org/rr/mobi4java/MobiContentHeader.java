@@ -2,23 +2,23 @@ package org.rr.mobi4java;
 
 import static org.apache.commons.lang3.BooleanUtils.negate;
 import static org.rr.mobi4java.ByteUtils.getBytes;
-import static org.rr.mobi4java.ByteUtils.getInt;
+import static org.rr.mobi4java.ByteUtils.getInt32;
 import static org.rr.mobi4java.ByteUtils.getString;
+import static org.rr.mobi4java.ByteUtils.getU16;
 import static org.rr.mobi4java.ByteUtils.write;
 import static org.rr.mobi4java.ByteUtils.writeInt;
 import static org.rr.mobi4java.ByteUtils.writeString;
+import static org.rr.mobi4java.ByteUtils.writeZeros;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.io.output.TeeOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
@@ -113,99 +113,100 @@ public class MobiContentHeader extends MobiContent {
 	// end of useful data
 	
 	private MobiContentHeader(byte[] content, long recordDataOffset, long recordDataLength) {
-		super(getBytes(content, (int) recordDataOffset, (int) recordDataLength), CONTENT_TYPE.HEADER);
+		super(content, CONTENT_TYPE.HEADER);
 		this.recordDataOffset = (int) recordDataOffset;
 		this.recordDataLength = (int) recordDataLength;
 	}
 	
-	static MobiContentHeader readMobiHeader(byte[] content, long recordDataOffset, long recordDataLength) throws IOException {
-		return new MobiContentHeader(content, recordDataOffset, recordDataLength).readMobiHeader();
+	static MobiContentHeader readMobiHeader(ByteBuffer content, long recordDataOffset, long recordDataLength) throws IOException {
+		byte[] headerContent = getBytes(content, (int) recordDataOffset, (int) recordDataLength);
+		return new MobiContentHeader(headerContent, recordDataOffset, recordDataLength).readMobiHeader();
 	}
 	
 	private MobiContentHeader readMobiHeader() throws IOException {
 		// first 16 bytes of the PalmDOC Header followed by the MOBI header
-		compression = getInt(content, 0, 2);
-		unused0 = getInt(content, 2, 2);
-		textLength = getInt(content, 4, 4);
-		recordCount = getInt(content, 8, 2);
-		recordSize = getInt(content, 10, 2);
-		encryptionType = getInt(content, 12, 2);
-		unused1 = getInt(content, 14, 2);
+		compression = getU16(content, 0);
+		unused0 = getU16(content, 2);
+		textLength = getInt32(content, 4);
+		recordCount = getU16(content, 8);
+		recordSize = getU16(content, 10);
+		encryptionType = getU16(content, 12);
+		unused1 = getU16(content, 14);
 		String identifier = getString(content, 16, 4);
 		if (negate(StringUtils.equals(identifier, "MOBI"))) {
 			throw new IOException("Expected to find EXTH header identifier EXTH but got '" + identifier + "' instead");
 		}
-		int headerLength = getInt(content, 20, 4);
-		mobiType = getInt(content, 24, 4);
-		textEncoding = getInt(content, 28, 4);
-		uniqueID = getInt(content, 32, 4);
-		fileVersion = getInt(content, 36, 4);
-		orthographicIndex = getInt(content, 40, 4);
-		inflectionIndex = getInt(content, 44, 4);
-		indexNames = getInt(content, 48, 4);
-		indexKeys = getInt(content, 52, 4);
-		extraIndex0 = getInt(content, 56, 4);
-		extraIndex1 = getInt(content, 60, 4);
-		extraIndex2 = getInt(content, 64, 4);
-		extraIndex3 = getInt(content, 68, 4);
-		extraIndex4 = getInt(content, 72, 4);
-		extraIndex5 = getInt(content, 76, 4);
-		firstNonBookIndex = getInt(content, 80, 4);
-		fullNameOffset = getInt(content, 84, 4);
-		fullNameLength = getInt(content, 88, 4);
-		locale = getInt(content, 92, 4);
-		inputLanguage = getInt(content, 96, 4);
-		outputLanguage = getInt(content, 100, 4);
-		minVersion = getInt(content, 104, 4);
-		firstImageIndex = getInt(content, 108, 4);
-		huffmanRecordOffset = getInt(content, 112, 4);
-		huffmanRecordCount = getInt(content, 116, 4);
-		huffmanTableOffset = getInt(content, 120, 4);
-		huffmanTableLength = getInt(content, 124, 4);
-		exthFlags = getInt(content, 128, 4);
+		int headerLength = getInt32(content, 20);
+		mobiType = getInt32(content, 24);
+		textEncoding = getInt32(content, 28);
+		uniqueID = getInt32(content, 32);
+		fileVersion = getInt32(content, 36);
+		orthographicIndex = getInt32(content, 40);
+		inflectionIndex = getInt32(content, 44);
+		indexNames = getInt32(content, 48);
+		indexKeys = getInt32(content, 52);
+		extraIndex0 = getInt32(content, 56);
+		extraIndex1 = getInt32(content, 60);
+		extraIndex2 = getInt32(content, 64);
+		extraIndex3 = getInt32(content, 68);
+		extraIndex4 = getInt32(content, 72);
+		extraIndex5 = getInt32(content, 76);
+		firstNonBookIndex = getInt32(content, 80);
+		fullNameOffset = getInt32(content, 84);
+		fullNameLength = getInt32(content, 88);
+		locale = getInt32(content, 92);
+		inputLanguage = getInt32(content, 96);
+		outputLanguage = getInt32(content, 100);
+		minVersion = getInt32(content, 104);
+		firstImageIndex = getInt32(content, 108);
+		huffmanRecordOffset = getInt32(content, 112);
+		huffmanRecordCount = getInt32(content, 116);
+		huffmanTableOffset = getInt32(content, 120);
+		huffmanTableLength = getInt32(content, 124);
+		exthFlags = getInt32(content, 128);
 		
 		// optional contents
 		if(headerLength >= 194) {
-			firstContentRecordIndex = getInt(content, 192, 2);
+			firstContentRecordIndex = getU16(content, 192);
 		}
 		if(headerLength >= 196) {
-			lastContentRecordIndex = getInt(content, 194, 2);
+			lastContentRecordIndex = getU16(content, 194);
 		}
 		if(headerLength >= 204) {
-			fcisRecordIndex = getInt(content, 200, 4);
+			fcisRecordIndex = getInt32(content, 200);
 		}
 		if(headerLength >= 208) {
-			fcisRecordCount = getInt(content, 204, 4);
+			fcisRecordCount = getInt32(content, 204);
 		}
 		if(headerLength >= 212) {
-			flisRecordIndex = getInt(content, 208, 4);
+			flisRecordIndex = getInt32(content, 208);
 		}
 		if(headerLength >= 216) {
-			flisRecordCount = getInt(content, 212, 4);
+			flisRecordCount = getInt32(content, 212);
 		}
 		if(headerLength >= 228) {
-			srcsRecordIndex = getInt(content, 224, 4);
+			srcsRecordIndex = getInt32(content, 224);
 		}
 		if(headerLength >= 232) {
-			srcsRecordCount = getInt(content, 228, 4);
+			srcsRecordCount = getInt32(content, 228);
 		}
 		if(headerLength >= 244) {
-			extraRecordDataFlags = getInt(content, 240, 4);
+			extraRecordDataFlags = getInt32(content, 240);
 		}
 		if(headerLength >= 248) {
-			indxRecordIndex = getInt(content, 244, 4);
+			indxRecordIndex = getInt32(content, 244);
 		}
 		if(headerLength >= 256) {
-			fragmentRecordIndex = getInt(content, 252, 4);
+			fragmentRecordIndex = getInt32(content, 252);
 		}
 		if(headerLength >= 264) {
-			skeletonRecordIndex = getInt(content, 260, 4);
+			skeletonRecordIndex = getInt32(content, 260);
 		}
 		if(headerLength >= 268) {
-			datpRecordIndex = getInt(content, 264, 4);
+			datpRecordIndex = getInt32(content, 264);
 		}
 		if(headerLength >= 276) {
-			datpRecordIndex = getInt(content, 272, 4);
+			datpRecordIndex = getInt32(content, 272);
 		}
 
 		if(exthExists()) {
@@ -220,85 +221,80 @@ public class MobiContentHeader extends MobiContent {
 	}
 	
 	@Override
-	byte[] writeContent(OutputStream out) throws IOException {
-		ByteArrayOutputStream branch = new ByteArrayOutputStream();
-		TeeOutputStream tee = new TeeOutputStream(out, branch);
-		
-		writeInt(compression, 2, tee);
-		writeInt(unused0, 2, tee);
-		writeInt(textLength, 4, tee);
-		writeInt(recordCount, 2, tee);
-		writeInt(recordSize, 2, tee);
-		writeInt(encryptionType, 2, tee);
-		writeInt(unused1, 2, tee);
-		writeString("MOBI", 4, tee);
-		writeInt(DEFAULT_HEADER_LENGTH, 4, tee);
-		writeInt(mobiType, 4, tee);
-		writeInt(textEncoding, 4, tee);
-		writeInt(uniqueID, 4, tee);
-		writeInt(fileVersion, 4, tee);
-		writeInt(orthographicIndex, 4, tee);
-		writeInt(inflectionIndex, 4, tee);
-		writeInt(indexNames, 4, tee);
-		writeInt(indexKeys, 4, tee);
-		writeInt(extraIndex0, 4, tee);
-		writeInt(extraIndex1, 4, tee);
-		writeInt(extraIndex2, 4, tee);
-		writeInt(extraIndex3, 4, tee);
-		writeInt(extraIndex4, 4, tee);
-		writeInt(extraIndex5, 4, tee);
-		writeInt(firstNonBookIndex, 4, tee);
-		writeInt(fullNameOffset, 4, tee);
-		writeInt(fullNameLength, 4, tee);
-		writeInt(locale, 4, tee);
-		writeInt(inputLanguage, 4, tee);
-		writeInt(outputLanguage, 4, tee);
-		writeInt(minVersion, 4, tee);
-		writeInt(firstImageIndex, 4, tee);
-		writeInt(huffmanRecordOffset, 4, tee);
-		writeInt(huffmanRecordCount, 4, tee);
-		writeInt(huffmanTableOffset, 4, tee);
-		writeInt(huffmanTableLength, 4, tee);
-		writeInt(exthFlags, 4, tee);
+	void writeContent(OutputStream out) throws IOException {
+		writeInt(compression, 2, out);
+		writeInt(unused0, 2, out);
+		writeInt(textLength, 4, out);
+		writeInt(recordCount, 2, out);
+		writeInt(recordSize, 2, out);
+		writeInt(encryptionType, 2, out);
+		writeInt(unused1, 2, out);
+		writeString("MOBI", 4, out);
+		writeInt(DEFAULT_HEADER_LENGTH, 4, out);
+		writeInt(mobiType, 4, out);
+		writeInt(textEncoding, 4, out);
+		writeInt(uniqueID, 4, out);
+		writeInt(fileVersion, 4, out);
+		writeInt(orthographicIndex, 4, out);
+		writeInt(inflectionIndex, 4, out);
+		writeInt(indexNames, 4, out);
+		writeInt(indexKeys, 4, out);
+		writeInt(extraIndex0, 4, out);
+		writeInt(extraIndex1, 4, out);
+		writeInt(extraIndex2, 4, out);
+		writeInt(extraIndex3, 4, out);
+		writeInt(extraIndex4, 4, out);
+		writeInt(extraIndex5, 4, out);
+		writeInt(firstNonBookIndex, 4, out);
+		writeInt(fullNameOffset, 4, out);
+		writeInt(fullNameLength, 4, out);
+		writeInt(locale, 4, out);
+		writeInt(inputLanguage, 4, out);
+		writeInt(outputLanguage, 4, out);
+		writeInt(minVersion, 4, out);
+		writeInt(firstImageIndex, 4, out);
+		writeInt(huffmanRecordOffset, 4, out);
+		writeInt(huffmanRecordCount, 4, out);
+		writeInt(huffmanTableOffset, 4, out);
+		writeInt(huffmanTableLength, 4, out);
+		writeInt(exthFlags, 4, out);
 		
 		// optional header part with 148 bytes
-		write(new byte[32], tee); // Unknown 32 bytes
-		writeInt(-1, 4, tee); // Unknown Use 0xFFFFFFFF
-		writeInt(-1, 4, tee); // DRM-Offset: No DRM
-		writeInt(0, 4, tee); // DRM-Count: No DRM
-		writeInt(0, 4, tee); // DRM-Size: No DRM
-		writeInt(0, 4, tee); // DRM-Flags: No DRM
-		write(new byte[8], tee); // Unknown
-		writeInt(firstContentRecordIndex, 2, tee);
-		writeInt(lastContentRecordIndex, 2, tee);
-		writeInt(1, 4, tee); // Unknown 0x00000001
-		writeInt(fcisRecordIndex, 4, tee);
-		writeInt(fcisRecordCount, 4, tee);
-		writeInt(flisRecordIndex, 4, tee);
-		writeInt(flisRecordCount, 4, tee);
-		write(new byte[8], tee); // Unknown 8 bytes
-		writeInt(srcsRecordIndex, 4, tee);
-		writeInt(srcsRecordCount, 4, tee);
-		writeInt(-1, 4, tee); // Unknown Use 0xFFFFFFFF
-		writeInt(-1, 4, tee); // Unknown Use 0xFFFFFFFF
-		writeInt(extraRecordDataFlags, 4, tee);
-		writeInt(indxRecordIndex, 4, tee);
-		writeInt(-1, 4, tee); // unknown
-		writeInt(fragmentRecordIndex, 4, tee);
-		writeInt(-1, 4, tee); // unknown
-		writeInt(skeletonRecordIndex, 4, tee);
-		writeInt(datpRecordIndex, 4, tee);
-		writeInt(0, 4, tee); // Unknown
-		writeInt(guideIndex, 4, tee); // Unknown
-		writeInt(0, 4, tee); // Unknown
+		writeZeros(32, out); // Unknown 32 bytes
+		writeInt(-1, 4, out); // Unknown Use 0xFFFFFFFF
+		writeInt(-1, 4, out); // DRM-Offset: No DRM
+		writeInt(0, 4, out); // DRM-Count: No DRM
+		writeInt(0, 4, out); // DRM-Size: No DRM
+		writeInt(0, 4, out); // DRM-Flags: No DRM
+		writeZeros(8, out); // Unknown
+		writeInt(firstContentRecordIndex, 2, out);
+		writeInt(lastContentRecordIndex, 2, out);
+		writeInt(1, 4, out); // Unknown 0x00000001
+		writeInt(fcisRecordIndex, 4, out);
+		writeInt(fcisRecordCount, 4, out);
+		writeInt(flisRecordIndex, 4, out);
+		writeInt(flisRecordCount, 4, out);
+		writeZeros(8, out); // Unknown 8 bytes
+		writeInt(srcsRecordIndex, 4, out);
+		writeInt(srcsRecordCount, 4, out);
+		writeInt(-1, 4, out); // Unknown Use 0xFFFFFFFF
+		writeInt(-1, 4, out); // Unknown Use 0xFFFFFFFF
+		writeInt(extraRecordDataFlags, 4, out);
+		writeInt(indxRecordIndex, 4, out);
+		writeInt(-1, 4, out); // unknown
+		writeInt(fragmentRecordIndex, 4, out);
+		writeInt(-1, 4, out); // unknown
+		writeInt(skeletonRecordIndex, 4, out);
+		writeInt(datpRecordIndex, 4, out);
+		writeInt(0, 4, out); // Unknown
+		writeInt(guideIndex, 4, out); // Unknown
+		writeInt(0, 4, out); // Unknown
 
 		if(exthExists()) {
-			exthHeader.writeEXTHHeader(tee);
+			exthHeader.writeEXTHHeader(out);
 		}
 		
-		write(remainder, remainder.length, tee);
-		
-		return branch.toByteArray();
+		write(remainder, remainder.length, out);
 	}
 
 	private int getHeaderLength() {
@@ -355,18 +351,18 @@ public class MobiContentHeader extends MobiContent {
 	}
 
 	
+	/**
+	 * @return All EXTH records of this header. The result {@link List} is not modifiable.
+	 */
 	public List<EXTHRecord> getEXTHRecords() {
-		return (exthHeader == null) ? (new LinkedList<EXTHRecord>()) : exthHeader.getRecordList();
+		return (exthHeader == null) ? Collections.<EXTHRecord>emptyList() : exthHeader.getRecordList();
 	}
 
+	/**
+	 * @return All EXTH records of the given type in their file order. The result {@link List} is not modifiable.
+	 */
 	public List<EXTHRecord> getEXTHRecords(EXTHRecord.RECORD_TYPE type) {
-		List<EXTHRecord> resultRecords = new ArrayList<>();
-		for (EXTHRecord record : getEXTHRecords()) {
-			if(record.getRecordType() == type) {
-				resultRecords.add(record);
-			}
-		}
-		return resultRecords;
+		return (exthHeader == null) ? Collections.<EXTHRecord>emptyList() : exthHeader.getRecords(type);
 	}
 
 	public void addEXTHRecord(EXTHRecord exthRecord) {
@@ -375,6 +371,16 @@ public class MobiContentHeader extends MobiContent {
 		}
 		exthHeader.addRecord(exthRecord);
 	}
+	
+	public boolean removeEXTHRecord(EXTHRecord exthRecord) {
+		return exthHeader != null && exthHeader.removeRecord(exthRecord);
+	}
+	
+	public void removeAllEXTHRecords() {
+		if(exthHeader != null) {
+			exthHeader.removeAllRecords();
+		}
+	}
 
 	public int getTextEncoding() {
 		return textEncoding;
@@ -599,4 +605,49 @@ public class MobiContentHeader extends MobiContent {
 		this.huffmanRecordCount = huffmanRecordCount;
 	}
 
+	/**
+	 * The flags for the trailing entries which are appended to each text record. Bit 0 marks the multibyte character overlap entry, each
+	 * further bit marks another trailing entry like the TBS indexing data.
+	 */
+	public int getExtraRecordDataFlags() {
+		return extraRecordDataFlags;
+	}
+
+	public void setExtraRecordDataFlags(int extraRecordDataFlags) {
+		this.extraRecordDataFlags = extraRecordDataFlags;
+	}
+
+	/**
+	 * @return The record index of the NCX index or <code>-1</code> if the document has no NCX index.
+	 */
+	public int getIndxRecordIndex() {
+		return indxRecordIndex;
+	}
+
+	public void setIndxRecordIndex(int indxRecordIndex) {
+		this.indxRecordIndex = indxRecordIndex;
+	}
+
+	/**
+	 * @return The record index of the orthographic index of a dictionary or <code>-1</code> if the document is no dictionary.
+	 */
+	public int getOrthographicIndex() {
+		return orthographicIndex;
+	}
+
+	public void setOrthographicIndex(int orthographicIndex) {
+		this.orthographicIndex = orthographicIndex;
+	}
+
+	/**
+	 * @return The record index of the inflection index of a dictionary or <code>-1</code> if the dictionary has no inflections.
+	 */
+	public int getInflectionIndex() {
+		return inflectionIndex;
+	}
+
+	public void setInflectionIndex(int inflectionIndex) {
+		this.inflectionIndex = inflectionIndex;
+	}
+
 }
@@ -1,16 +1,14 @@
 package org.rr.mobi4java;
 
 import static org.apache.commons.lang3.BooleanUtils.negate;
-import static org.rr.mobi4java.ByteUtils.getInt;
 import static org.rr.mobi4java.ByteUtils.getString;
+import static org.rr.mobi4java.ByteUtils.getU16;
 import static org.rr.mobi4java.ByteUtils.writeInt;
 import static org.rr.mobi4java.ByteUtils.writeString;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
-import org.apache.commons.io.output.TeeOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
@@ -35,22 +33,19 @@ public class MobiContentIdxt extends MobiContent {
 		
 		indexEntriesIndices = new int[entriesCount];
 		for (int i = 0; i < entriesCount; i++) {
-			indexEntriesIndices[i] = getInt(content, 4 + (i * 2), 2);
+			indexEntriesIndices[i] = getU16(content, 4 + (i * 2));
 		}
 		
-		indexEntriesCount = getInt(content, 4 + (indexEntriesIndices.length * 2), 2);
+		indexEntriesCount = getU16(content, 4 + (indexEntriesIndices.length * 2));
 	}
 	
 	@Override
-	byte[] writeContent(OutputStream out) throws IOException {
-		ByteArrayOutputStream branch = new ByteArrayOutputStream();
-		TeeOutputStream tee = new TeeOutputStream(out, branch);
-		writeString(IDENTIFIER, 4, tee);
+	void writeContent(OutputStream out) throws IOException {
+		writeString(IDENTIFIER, 4, out);
 		for (int indexEntriesIndex : indexEntriesIndices) {
-			writeInt(indexEntriesIndex, 2, tee);
+			writeInt(indexEntriesIndex, 2, out);
 		}
-		writeInt(indexEntriesCount, 2, tee);
-		return branch.toByteArray();
+		writeInt(indexEntriesCount, 2, out);
 	}
 	
 	@Override
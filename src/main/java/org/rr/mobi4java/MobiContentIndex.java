@@ -2,20 +2,22 @@ package org.rr.mobi4java;
 
 import static org.apache.commons.lang3.BooleanUtils.negate;
 import static org.rr.mobi4java.ByteUtils.getBytes;
-import static org.rr.mobi4java.ByteUtils.getInt;
+import static org.rr.mobi4java.ByteUtils.getInt32;
 import static org.rr.mobi4java.ByteUtils.getString;
+import static org.rr.mobi4java.ByteUtils.getU16;
+import static org.rr.mobi4java.ByteUtils.getU8;
+import static org.rr.mobi4java.ByteUtils.getVarLen;
+import static org.rr.mobi4java.ByteUtils.getVarLenSize;
 import static org.rr.mobi4java.ByteUtils.write;
 import static org.rr.mobi4java.ByteUtils.writeInt;
 import static org.rr.mobi4java.ByteUtils.writeString;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.io.output.TeeOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
@@ -82,6 +84,14 @@ public class MobiContentIndex extends MobiContent {
 	
 	private MobiContentTagx tagx;
 	
+	private MobiContentIdxt idxt;
+	
+	/** The characters of the entry keys by their byte value or <code>null</code> if the keys are encoded with the index encoding. */
+	private int[] ordt;
+	
+	/** The offsets of the entries in this record taken from the IDXT. Created with the first entry access. */
+	private int[] entryOffsets;
+	
 	MobiContentIndex(byte[] content) throws IOException {
 		super(content, CONTENT_TYPE.INDEX);
 		readMobiIndex();
@@ -92,39 +102,37 @@ public class MobiContentIndex extends MobiContent {
 		if (negate(StringUtils.equals(identifier, IDENTIFIER))) {
 			throw new IOException("Expected to find index header identifier INDX but got '" + identifier + "' instead");
 		}
-		headerLength = getInt(content, 4, 4);
-		indexType = getInt(content, 8, 4);
-		unknown1 = getInt(content, 12, 4);
-		unknown2 = getInt(content, 16, 4);
-		idxtIndex = getInt(content, 20, 4);
-		indexCount = getInt(content, 24, 4); // entries count
-		indexEncoding = getInt(content, 28, 4);
-		indexLanguage = getInt(content, 32, 4);
-		totalIndexCount = getInt(content, 36, 4); // total entries count
-		ordtIndex = getInt(content, 40, 4);
-		ligtIndex = getInt(content, 44, 4);
-		ordtLigtEntriesCount = getInt(content, 48, 4);
-		cncxRecordCount = getInt(content, 52, 4);
+		headerLength = getInt32(content, 4);
+		indexType = getInt32(content, 8);
+		unknown1 = getInt32(content, 12);
+		unknown2 = getInt32(content, 16);
+		idxtIndex = getInt32(content, 20);
+		indexCount = getInt32(content, 24); // entries count
+		indexEncoding = getInt32(content, 28);
+		indexLanguage = getInt32(content, 32);
+		totalIndexCount = getInt32(content, 36); // total entries count
+		ordtIndex = getInt32(content, 40);
+		ligtIndex = getInt32(content, 44);
+		ordtLigtEntriesCount = getInt32(content, 48);
+		cncxRecordCount = getInt32(content, 52);
 		/* 60-148: phonetizer */
 		unknownIndxHeaderPart = getBytes(content, 56, headerLength - 56);
 		
-		int ordtType = getInt(content, 164, 4);
-		int ordtEntriesCount = getInt(content, 168, 4);
-		int ordt1Offset = getInt(content, 172, 4);
-		int ordt2Offset = getInt(content, 176, 4);
-		int entrySize = ordtType == 0 ? 1 : 2;
+		int ordtEntriesCount = getInt32(content, 168);
+		int ordt2Offset = getInt32(content, 176);
+		if(ordtEntriesCount > 0 && ordt2Offset > 0 && ordt2Offset + 4 + ordtEntriesCount * 2 <= content.length
+				&& StringUtils.equals(getString(content, ordt2Offset, 4), "ORDT")) {
+			ordt = new int[ordtEntriesCount];
+			for (int i = 0; i < ordtEntriesCount; i++) {
+				ordt[i] = getU16(content, ordt2Offset + 4 + i * 2);
+			}
+		}
 		
-		int tagxIndex = getInt(content, 180, 4);
-		int tagxNameLength = getInt(content, 184, 4);
+		int tagxIndex = getInt32(content, 180);
+		int tagxNameLength = getInt32(content, 184);
 		if(tagxIndex > 0) {
 			tagx = new MobiContentTagx(getBytes(content, tagxIndex));
-			List<MobiContentTagEntry> tags = tagx.getTags();
-			for (MobiContentTagEntry tag : tags) {
-				int value = tag.getControlByte() & tag.getBitmask();
-			}
-			
-			
-			MobiContentIdxt idxt = new MobiContentIdxt(getBytes(content, idxtIndex), indexCount);
+			idxt = new MobiContentIdxt(getBytes(content, idxtIndex), indexCount);
 			
 			rest = getBytes(content, tagxIndex + tagx.getSize());
 		} else {
@@ -133,31 +141,27 @@ public class MobiContentIndex extends MobiContent {
 	}
 	
 	@Override
-	byte[] writeContent(OutputStream out) throws IOException {
-		ByteArrayOutputStream branch = new ByteArrayOutputStream();
-		TeeOutputStream tee = new TeeOutputStream(out, branch);
-		writeString(IDENTIFIER, 4, tee);
-		writeInt(headerLength, 4, tee);
-		writeInt(indexType, 4, tee);
-		writeInt(unknown1, 4, tee);
-		writeInt(unknown2, 4, tee);
-		writeInt(idxtIndex, 4, tee);
-		writeInt(indexCount, 4, tee);
-		writeInt(indexEncoding, 4, tee);
-		writeInt(indexLanguage, 4, tee);
-		writeInt(totalIndexCount, 4, tee);
-		writeInt(ordtIndex, 4, tee);
-		writeInt(ligtIndex, 4, tee);
-		writeInt(ordtLigtEntriesCount, 4, tee);
-		writeInt(cncxRecordCount, 4, tee);
+	void writeContent(OutputStream out) throws IOException {
+		writeString(IDENTIFIER, 4, out);
+		writeInt(headerLength, 4, out);
+		writeInt(indexType, 4, out);
+		writeInt(unknown1, 4, out);
+		writeInt(unknown2, 4, out);
+		writeInt(idxtIndex, 4, out);
+		writeInt(indexCount, 4, out);
+		writeInt(indexEncoding, 4, out);
+		writeInt(indexLanguage, 4, out);
+		writeInt(totalIndexCount, 4, out);
+		writeInt(ordtIndex, 4, out);
+		writeInt(ligtIndex, 4, out);
+		writeInt(ordtLigtEntriesCount, 4, out);
+		writeInt(cncxRecordCount, 4, out);
 		write(unknownIndxHeaderPart, out);
 		
 		if(tagx != null) {
-			tagx.writeContent(tee);
+			tagx.writeContent(out);
 		}
 		write(rest, out);
-		
-		return branch.toByteArray();
 	}
 	
 	@Override
@@ -182,6 +186,202 @@ public class MobiContentIndex extends MobiContent {
 		.toString();
 	}
 
+	/**
+	 * Get the offsets of the entries in this record. The offsets are taken from the IDXT at the end of the record.
+	 * 
+	 * @return The entry offsets in the order of the entries.
+	 * @throws IOException if the record has no valid IDXT.
+	 */
+	int[] getEntryOffsets() throws IOException {
+		if(entryOffsets == null) {
+			if(idxtIndex <= 0 || idxtIndex + 4 + indexCount * 2 > content.length || !StringUtils.equals(getString(content, idxtIndex, 4), "IDXT")) {
+				throw new IOException("Invalid IDXT offset " + idxtIndex);
+			}
+			int[] offsets = new int[indexCount];
+			for (int i = 0; i < indexCount; i++) {
+				offsets[i] = getU16(content, idxtIndex + 4 + i * 2);
+			}
+			entryOffsets = offsets;
+		}
+		return entryOffsets;
+	}
+	
+	/**
+	 * @return The key bytes of an entry in this record.
+	 * @throws IOException if the record has no valid IDXT.
+	 */
+	byte[] getEntryKey(int entry) throws IOException {
+		int offset = getEntryOffsets()[entry];
+		int length = getU8(content, offset);
+		if(offset + 1 + length > content.length) {
+			throw new IOException("Invalid index entry " + entry);
+		}
+		return getBytes(content, offset + 1, length);
+	}
+	
+	/**
+	 * Compare the key of an entry in this record with the given key. Both keys are compared as unsigned bytes.
+	 * 
+	 * @param entry The entry number in this record.
+	 * @param key The encoded key.
+	 * @return A negative value if the entry key is less than the given key, zero if both keys are equal and a positive value if the
+	 *         entry key is greater than the given key.
+	 * @throws IOException if the record has no valid IDXT.
+	 */
+	int compareEntryKey(int entry, byte[] key) throws IOException {
+		int offset = getEntryOffsets()[entry];
+		int length = getU8(content, offset);
+		if(offset + 1 + length > content.length) {
+			throw new IOException("Invalid index entry " + entry);
+		}
+		int count = Math.min(length, key.length);
+		for (int i = 0; i < count; i++) {
+			int difference = (content[offset + 1 + i] & 0xff) - (key[i] & 0xff);
+			if(difference != 0) {
+				return difference;
+			}
+		}
+		return length - key.length;
+	}
+	
+	/**
+	 * Decode the tag values of an entry in this record. Only the first value of each tag is kept.
+	 * 
+	 * @param entry The entry number in this record.
+	 * @param tagx The TAGX of the main index record which describes the entries.
+	 * @param values Receives the values in the order of the tags without the end of control byte markers. Tags which are not present
+	 *          in the entry are set to <code>-1</code>.
+	 * @throws IOException if the entry could not be decoded.
+	 */
+	void readEntryValues(int entry, MobiContentTagx tagx, int[] values) throws IOException {
+		int[] tagTable = tagx.getTagValuesTable();
+		try {
+			int position = readValueCounts(entry, tagx, values);
+			int valueTag = 0;
+			for (int i = 0; i < tagTable.length; i += 4) {
+				if(tagTable[i + 3] == 1) {
+					continue;
+				}
+				int count = values[valueTag];
+				if(count == 0) {
+					values[valueTag] = -1;
+				} else {
+					values[valueTag] = getVarLen(content, position);
+					position = skipValues(position, count, tagTable[i + 1]);
+				}
+				valueTag++;
+			}
+			checkEntryEnd(entry, position);
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Invalid index entry " + entry, e);
+		}
+	}
+	
+	/**
+	 * Decode all values of a single tag of an entry in this record.
+	 * 
+	 * @param entry The entry number in this record.
+	 * @param tagx The TAGX of the main index record which describes the entries.
+	 * @param tag The tag number.
+	 * @return The values of the tag which is empty if the entry has no value for the tag.
+	 * @throws IOException if the entry could not be decoded.
+	 */
+	int[] readEntryValues(int entry, MobiContentTagx tagx, int tag) throws IOException {
+		int[] tagTable = tagx.getTagValuesTable();
+		int[] counts = new int[tagTable.length / 4];
+		try {
+			int position = readValueCounts(entry, tagx, counts);
+			int valueTag = 0;
+			for (int i = 0; i < tagTable.length; i += 4) {
+				if(tagTable[i + 3] == 1) {
+					continue;
+				}
+				int count = counts[valueTag++];
+				if(count == 0) {
+					continue;
+				}
+				if(tagTable[i] != tag) {
+					position = skipValues(position, count, tagTable[i + 1]);
+					continue;
+				}
+				
+				int valuesEnd = count < 0 ? position - count : -1;
+				int[] values = new int[count < 0 ? -count : count * tagTable[i + 1]];
+				int valueCount = 0;
+				while (valuesEnd >= 0 ? position < valuesEnd : valueCount < values.length) {
+					values[valueCount++] = getVarLen(content, position);
+					position += getVarLenSize(content, position);
+				}
+				checkEntryEnd(entry, position);
+				return valueCount == values.length ? values : Arrays.copyOf(values, valueCount);
+			}
+			return new int[0];
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Invalid index entry " + entry, e);
+		}
+	}
+	
+	/**
+	 * Read the control bytes of an entry. The control bytes tell which tags are present and how many values they have.
+	 * 
+	 * @param counts Receives the counts in the order of the tags without the end of control byte markers. Positive counts are value
+	 *          counts, negative counts are the number of value bytes and zero marks tags which are not present.
+	 * @return The offset of the first tag value.
+	 */
+	private int readValueCounts(int entry, MobiContentTagx tagx, int[] counts) throws IOException {
+		int start = getEntryOffsets()[entry];
+		int[] tagTable = tagx.getTagValuesTable();
+		int controlByteOffset = start + 1 + getU8(content, start);
+		int position = controlByteOffset + tagx.getControlByteCount();
+		int valueTag = 0;
+		for (int i = 0; i < tagTable.length; i += 4) {
+			if(tagTable[i + 3] == 1) {
+				controlByteOffset++;
+				continue;
+			}
+			int mask = tagTable[i + 2];
+			int value = getU8(content, controlByteOffset) & mask;
+			if(value == 0) {
+				counts[valueTag] = 0;
+			} else if(value == mask && Integer.bitCount(mask) > 1) {
+				counts[valueTag] = -getVarLen(content, position);
+				position += getVarLenSize(content, position);
+			} else if(value == mask) {
+				counts[valueTag] = 1;
+			} else {
+				while ((mask & 1) == 0) {
+					mask >>= 1;
+					value >>= 1;
+				}
+				counts[valueTag] = value;
+			}
+			valueTag++;
+		}
+		return position;
+	}
+	
+	/**
+	 * @return The offset behind the values of a tag.
+	 * @see #readValueCounts(int, MobiContentTagx, int[])
+	 */
+	private int skipValues(int position, int count, int valuesPerEntry) {
+		if(count < 0) {
+			return position - count;
+		}
+		for (int i = count * valuesPerEntry; i > 0; i--) {
+			position += getVarLenSize(content, position);
+		}
+		return position;
+	}
+	
+	private void checkEntryEnd(int entry, int position) throws IOException {
+		int[] offsets = getEntryOffsets();
+		int end = entry + 1 < offsets.length ? offsets[entry + 1] : idxtIndex;
+		if(position > end) {
+			throw new IOException("Index entry " + entry + " exceeds its bounds");
+		}
+	}
+
 	public INDEX_TYPE getIndexType() {
 		return INDEX_TYPE.valueOf(indexType);
 	}
@@ -212,4 +412,32 @@ public class MobiContentIndex extends MobiContent {
 		return totalIndexCount;
 	}
 
+	/**
+	 * @return The number of CNCX records following the index data records.
+	 */
+	public int getCncxRecordCount() {
+		return cncxRecordCount;
+	}
+
+	/**
+	 * @return The characters of the entry keys by their byte value or <code>null</code> if the keys are encoded with the index encoding.
+	 */
+	int[] getOrdt() {
+		return ordt;
+	}
+
+	/**
+	 * @return The TAGX which describes the entries or <code>null</code> if this is an index data record.
+	 */
+	public MobiContentTagx getTagx() {
+		return tagx;
+	}
+
+	/**
+	 * @return The IDXT of the main index record or <code>null</code> if this is an index data record.
+	 */
+	public MobiContentIdxt getIdxt() {
+		return idxt;
+	}
+
 }
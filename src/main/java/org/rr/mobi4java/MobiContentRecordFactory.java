@@ -1,10 +1,11 @@
 package org.rr.mobi4java;
 
 import static org.rr.mobi4java.ByteUtils.getBytes;
-import static org.rr.mobi4java.ByteUtils.getInt;
-import static org.rr.mobi4java.ByteUtils.startsWith;
+import static org.rr.mobi4java.ByteUtils.getInt32;
+import static org.rr.mobi4java.ByteUtils.getU16;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import org.apache.commons.lang3.Range;
@@ -13,6 +14,37 @@ import org.rr.mobi4java.MobiContent.CONTENT_TYPE;
 
 class MobiContentRecordFactory {
 	
+	private static final int MAGIC_INDX = 0x494E4458;
+	
+	private static final int MAGIC_TAGX = 0x54414758;
+	
+	private static final int MAGIC_FLIS = 0x464C4953;
+	
+	private static final int MAGIC_FCIS = 0x46434953;
+	
+	private static final int MAGIC_FDST = 0x46445354;
+	
+	private static final int MAGIC_DATP = 0x44415450;
+	
+	/** A SRCS record is a record whose content is a zip archive of all source files (i.e., .opf, .ncx, .htm, .jpg, ...) */
+	private static final int MAGIC_SRCS = 0x53524353;
+	
+	/** A CMET record is a record whose content is the output of the compilation operation, and perhaps extra info. */
+	private static final int MAGIC_CMET = 0x434D4554;
+	
+	/**
+	 * kindlegen supports embedded audio and video for some Kindle platforms. Each media file is stored in a separate AUDI (audio) or VIDE
+	 * (video) record
+	 */
+	private static final int MAGIC_AUDI = 0x41554449;
+	
+	private static final int MAGIC_VIDE = 0x56494445;
+	
+	/** The HUFF record and the following CDIC records contain the code tables and the phrase dictionary of HUFF/CDIC compressed text. */
+	private static final int MAGIC_HUFF = 0x48554646;
+	
+	private static final int MAGIC_CDIC = 0x43444943;
+	
 	static MobiContent createContentRecord(byte[] mobiContent) {
 		return new MobiContent(mobiContent, CONTENT_TYPE.CONTENT);
 	}
@@ -29,54 +61,80 @@ class MobiContentRecordFactory {
 		return new MobiContent(new byte[] {0,0}, CONTENT_TYPE.END_OF_TEXT);
 	}
 	
-	static MobiContent readContent(byte[] mobiData, CONTENT_TYPE type, long recordDataOffset, long recordDataLength) throws IOException {
-		byte[] mobiContent = getBytes(mobiData, (int) recordDataOffset, (int) recordDataLength);
+	static MobiContent readContent(ByteBuffer mobiData, CONTENT_TYPE type, long recordDataOffset, long recordDataLength) throws IOException {
 		if(type == CONTENT_TYPE.INDEX) {
-			return new MobiContentIndex(mobiContent);
+			return new MobiContentIndex(getBytes(mobiData, (int) recordDataOffset, (int) recordDataLength));
 		}
-		return create(mobiContent, type);
+		return create(mobiData, (int) recordDataOffset, (int) recordDataLength, type);
 	}
 	
-	private static MobiContent create(byte[] mobiContent, CONTENT_TYPE type) {
-		return new MobiContent(mobiContent, type);
+	private static MobiContent create(ByteBuffer mobiData, int recordDataOffset, int recordDataLength, CONTENT_TYPE type) {
+		return new MobiContent(mobiData, recordDataOffset, recordDataLength, type);
 	}
 	
-	static CONTENT_TYPE evaluateType(PDBHeader pdbHeader, MobiContentHeader mobiHeader, int index, byte[] mobiData, long recordDataOffset, long recordDataLength) {
-		byte[] content = getBytes(mobiData, (int) recordDataOffset, (int) recordDataLength);
+	static CONTENT_TYPE evaluateType(PDBHeader pdbHeader, MobiContentHeader mobiHeader, int index, ByteBuffer mobiData, long recordDataOffset, long recordDataLength) {
 		if(isContentRecord(mobiHeader, index)) {
 			return CONTENT_TYPE.CONTENT;
-		} else if(isIndexRecord(content)) {
-			return CONTENT_TYPE.INDEX;
-		} else if(isEndOfTextRecord(mobiHeader, index, content)) {
+		}
+		
+		int offset = (int) recordDataOffset;
+		int length = (int) recordDataLength;
+		if(length >= 4) {
+			CONTENT_TYPE type = getTypeByMagic(getInt32(mobiData, offset));
+			if(type != null) {
+				return type;
+			}
+		} else if(isEndOfTextRecord(mobiHeader, index, mobiData, offset, length)) {
 			return CONTENT_TYPE.END_OF_TEXT;
-		} else if(isTagxRecord(content)) {
-			return CONTENT_TYPE.TAGX;
-		} else if(isFlisRecord(content)) {
-			return CONTENT_TYPE.FLIS;
-		} else if(isFcisRecord(content)) {
-			return CONTENT_TYPE.FCIS;
-		} else if(isFdstRecord(content)) {
-			return CONTENT_TYPE.FDST;
-		} else if(isDatpRecord(content)) {
-			return CONTENT_TYPE.DATP;
-		} else if(isSrcsRecord(content)) {
-			return CONTENT_TYPE.SRCS;
-		} else if(isCmetRecord(content)) {
-			return CONTENT_TYPE.CMET;
-		} else if(isAudiRecord(content)) {
-			return CONTENT_TYPE.AUDI;
-		} else if(isVideRecord(content)) {
-			return CONTENT_TYPE.VIDE;
-		} else if(isCover(mobiHeader, index)) {
+		}
+		
+		if(isCover(mobiHeader, index)) {
 			return CONTENT_TYPE.COVER;
 		} else if(isThumbnail(mobiHeader, index)) {
 			return CONTENT_TYPE.THUMBNAIL;
-		} else if(isImage(content)) {
+		} else if(getImageMimeType(mobiData, offset, length) != null) {
 			return CONTENT_TYPE.IMAGE;
 		}
 		return CONTENT_TYPE.UNKNOWN;
 	}
 	
+	/**
+	 * Get the type of those records which starts with a four character identifier.
+	 * 
+	 * @param magic The first four bytes of the record as big endian int.
+	 * @return The record type or <code>null</code> if the given magic did not belong to a record type with identifier.
+	 */
+	private static CONTENT_TYPE getTypeByMagic(int magic) {
+		switch (magic) {
+			case MAGIC_INDX:
+				return CONTENT_TYPE.INDEX; // Book index record which contains the meta data of the index.
+			case MAGIC_TAGX:
+				return CONTENT_TYPE.TAGX;
+			case MAGIC_FLIS:
+				return CONTENT_TYPE.FLIS;
+			case MAGIC_FCIS:
+				return CONTENT_TYPE.FCIS;
+			case MAGIC_FDST:
+				return CONTENT_TYPE.FDST;
+			case MAGIC_DATP:
+				return CONTENT_TYPE.DATP;
+			case MAGIC_SRCS:
+				return CONTENT_TYPE.SRCS;
+			case MAGIC_CMET:
+				return CONTENT_TYPE.CMET;
+			case MAGIC_AUDI:
+				return CONTENT_TYPE.AUDI;
+			case MAGIC_VIDE:
+				return CONTENT_TYPE.VIDE;
+			case MAGIC_HUFF:
+				return CONTENT_TYPE.HUFF;
+			case MAGIC_CDIC:
+				return CONTENT_TYPE.CDIC;
+			default:
+				return null;
+		}
+	}
+	
 	private static boolean isContentRecord(MobiContentHeader mobiHeader, int index) {
 		return Range.<Integer>between(1, mobiHeader.getRecordCount()).contains(index);
 	}
@@ -84,10 +142,10 @@ class MobiContentRecordFactory {
 	/**
 	 * In some cases, there are a 2-zero-byte record after the text records in a file.
 	 */
-	private static boolean isEndOfTextRecord(MobiContentHeader mobiHeader, int index, byte[] content) {
+	private static boolean isEndOfTextRecord(MobiContentHeader mobiHeader, int index, ByteBuffer mobiData, int offset, int length) {
 		return mobiHeader.getRecordCount() + 1 == index &&
-				content.length == 2 && 
-				startsWith(content, new byte[] {0x00, 0x00});
+				length == 2 && 
+				getU16(mobiData, offset) == 0;
 	}
 
 	private static boolean isThumbnail(MobiContentHeader mobiHeader, int index) {
@@ -111,106 +169,44 @@ class MobiContentRecordFactory {
 	/**
 	 * Tries to guess what the image type (if any) of a file based on the file's "magic numbers," the first bytes of the file.
 	 *
-	 * @param data byte array to be tested for image data.
-	 * @return <code>true</code> if an image was detected and <code>false</code> otherwise.
+	 * @param data buffer to be tested for image data.
+	 * @param offset The absolute offset of the data to be tested in the given buffer.
+	 * @param length The length of the data to be tested.
+	 * @return The mime type of the detected image or <code>null</code> if no image was detected.
 	 */
-	private static boolean isImage(byte[] data) {
-		if(data.length > 4) {
-			int b1 = getInt(data, 0, 1);
-			int b2 = getInt(data, 1, 1);
-			int b3 = getInt(data, 2, 1);
-			int b4 = getInt(data, 3, 1);
-	
-			if (b1 == 0x47 && b2 == 0x49) {
-				return true; // image/gif
-			} else if (b1 == 0x89 && b2 == 0x50) {
-				return true; // image/png
-			} else if (b1 == 0xFF && b2 == 0xD8) {
-				return true; // image/jpeg
-			} else if (b1 == 0xFF && b2 == 0xD9) {
-				return true; // image/jpeg
-			} else if (b1 == 0x42 && b2 == 0x4D) {
-				return true; // image/bmp
-			} else if (b1 == 0x4D && b2 == 0x4D) {
-				return true; // Motorola byte order TIFF
-			} else if (b1 == 0x49 && b2 == 0x49) {
-				return true; // Intel byte order TIFF
-			} else if (b1 == 0x38 && b2 == 0x42) {
-				return true; // image/psd
-			} else if (b1 == 0x50 && b2 == 0x31) {
-				return true; // image/pbm
-			} else if (b1 == 0x50 && b2 == 0x34) {
-				return true; // image/pbm
-			} else if (b1 == 0x50 && b2 == 0x32) {
-				return true; // image/pgm
-			} else if (b1 == 0x50 && b2 == 0x35) {
-				return true; // image/pgm
-			} else if (b1 == 0x50 && b2 == 0x33) {
-				return true; // image/pgm
-			} else if (b1 == 0x50 && b2 == 0x36) {
-				return true; // image/pgm
-			} else if (b1 == 0x97 && b2 == 0x4A && b3 == 0x42 && b4 == 0x32) {
-				return true; // image/x-jbig2
+	static String getImageMimeType(ByteBuffer data, int offset, int length) {
+		if(length > 4) {
+			int magic = getInt32(data, offset);
+			switch (magic >>> 16) {
+				case 0x4749:
+					return "image/gif";
+				case 0x8950:
+					return "image/png";
+				case 0xFFD8:
+				case 0xFFD9:
+					return "image/jpeg";
+				case 0x424D:
+					return "image/bmp";
+				case 0x4D4D: // Motorola byte order TIFF
+				case 0x4949: // Intel byte order TIFF
+					return "image/tiff";
+				case 0x3842:
+					return "image/psd";
+				case 0x5031:
+				case 0x5034:
+					return "image/x-portable-bitmap";
+				case 0x5032:
+				case 0x5035:
+					return "image/x-portable-graymap";
+				case 0x5033:
+				case 0x5036:
+					return "image/x-portable-pixmap";
+			}
+			if (magic == 0x974A4232) {
+				return "image/x-jbig2";
 			}
 		}
 
-		return false;
-	}
-
-	/**
-	 * Book index record which contains the meta data of the index.
-	 */
-	private static boolean isIndexRecord(byte[] content) {
-		return startsWith(content, "INDX".getBytes());
-	}
-	
-	private static boolean isTagxRecord(byte[] content) {
-		return startsWith(content, "TAGX".getBytes());
-	}
-	
-	private static boolean isFlisRecord(byte[] content) {
-		return startsWith(content, "FLIS".getBytes());
-	}
-	
-	private static boolean isFcisRecord(byte[] content) {
-		return startsWith(content, "FCIS".getBytes());
-	}
-	
-	private static boolean isFdstRecord(byte[] content) {
-		return startsWith(content, "FDST".getBytes());
-	}
-	
-	private static boolean isDatpRecord(byte[] content) {
-		return startsWith(content, "DATP".getBytes());
-	}
-	
-	/**
-	 * A SRCS record is a record whose content is a zip archive of all source files (i.e., .opf, .ncx, .htm, .jpg, ...)
-	 */
-	private static boolean isSrcsRecord(byte[] content) {
-		return startsWith(content, "SRCS".getBytes());
-	}
-	
-	/**
-	 * A CMET record is a record whose content is the output of the compilation operation, and perhaps extra info.
-	 */
-	private static boolean isCmetRecord(byte[] content) {
-		return startsWith(content, "CMET".getBytes());
-	}
-	
-	/**
-	 * kindlegen supports embedded audio and video for some Kindle platforms. Each media file is stored in a separate AUDI (audio) or VIDE
-	 * (video) record
-	 */
-	private static boolean isAudiRecord(byte[] content) {
-		return startsWith(content, "AUDI".getBytes());
-	}
-	
-	/**
-	 * kindlegen supports embedded audio and video for some Kindle platforms. Each media file is stored in a separate AUDI (audio) or VIDE
-	 * (video) record
-	 */
-	private static boolean isVideRecord(byte[] content) {
-		return startsWith(content, "VIDE".getBytes());
+		return null;
 	}
 }
@@ -1,15 +1,13 @@
 package org.rr.mobi4java;
 
-import static org.rr.mobi4java.ByteUtils.getInt;
+import static org.rr.mobi4java.ByteUtils.getU8;
 import static org.rr.mobi4java.ByteUtils.writeInt;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.apache.commons.io.output.TeeOutputStream;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 public class MobiContentTagEntry extends MobiContent {
@@ -70,21 +68,18 @@ public class MobiContentTagEntry extends MobiContent {
 	}
 
 	private void readMobiTag() throws IOException {
-		tag = getInt(content, 0, 1);
-		valuesCount = getInt(content, 1, 1);
-		bitmask = getInt(content, 2, 1);
-		controlByte = getInt(content, 3, 1);
+		tag = getU8(content, 0);
+		valuesCount = getU8(content, 1);
+		bitmask = getU8(content, 2);
+		controlByte = getU8(content, 3);
 	}
 	
 	@Override
-	byte[] writeContent(OutputStream out) throws IOException {
-		ByteArrayOutputStream branch = new ByteArrayOutputStream();
-		TeeOutputStream tee = new TeeOutputStream(out, branch);
-		writeInt(tag, 1, tee);
-		writeInt(valuesCount, 1, tee);
-		writeInt(bitmask, 1, tee);
-		writeInt(controlByte, 1, tee);
-		return branch.toByteArray();
+	void writeContent(OutputStream out) throws IOException {
+		writeInt(tag, 1, out);
+		writeInt(valuesCount, 1, out);
+		writeInt(bitmask, 1, out);
+		writeInt(controlByte, 1, out);
 	}
 	
 	@Override
@@ -105,6 +100,13 @@ public class MobiContentTagEntry extends MobiContent {
 	public TAG_ENTRY_TYPE getTag() {
 		return TAG_ENTRY_TYPE.valueOf(tag);
 	}
+	
+	/**
+	 * @return The tag number which is also available for tags without a {@link TAG_ENTRY_TYPE}.
+	 */
+	int getTagNumber() {
+		return tag;
+	}
 
 	public void setTag(TAG_ENTRY_TYPE tag) {
 		this.tag = tag.getType();
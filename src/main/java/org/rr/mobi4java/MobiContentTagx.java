@@ -2,18 +2,16 @@ package org.rr.mobi4java;
 
 import static org.apache.commons.lang3.BooleanUtils.negate;
 import static org.rr.mobi4java.ByteUtils.getBytes;
-import static org.rr.mobi4java.ByteUtils.getInt;
+import static org.rr.mobi4java.ByteUtils.getInt32;
 import static org.rr.mobi4java.ByteUtils.getString;
 import static org.rr.mobi4java.ByteUtils.writeInt;
 import static org.rr.mobi4java.ByteUtils.writeString;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.io.output.TeeOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
@@ -28,6 +26,9 @@ public class MobiContentTagx extends MobiContent {
 	private byte[] tagTable;
 	
 	private List<MobiContentTagEntry> tags;
+	
+	/** The tags as four ints per tag: tag number, values per entry, bitmask and end flag. Created with the first index entry decoding. */
+	private int[] tagValuesTable;
 
 	MobiContentTagx(byte[] content) throws IOException {
 		super(content, CONTENT_TYPE.TAGX);
@@ -39,8 +40,8 @@ public class MobiContentTagx extends MobiContent {
 		if (negate(StringUtils.equals(identifier, IDENTIFIER))) {
 			throw new IOException("Expected to find TAGX header identifier TAGX but got '" + identifier + "' instead");
 		}
-		headerLength = getInt(content, 4, 4);
-		controlByteCount = getInt(content, 8, 4);
+		headerLength = getInt32(content, 4);
+		controlByteCount = getInt32(content, 8);
 		int tagCount = (headerLength - 12) / 4;
 		tagTable = getBytes(content, 12, headerLength - 12);
 		
@@ -52,16 +53,13 @@ public class MobiContentTagx extends MobiContent {
 	}
 	
 	@Override
-	byte[] writeContent(OutputStream out) throws IOException {
-		ByteArrayOutputStream branch = new ByteArrayOutputStream();
-		TeeOutputStream tee = new TeeOutputStream(out, branch);
-		writeString(IDENTIFIER, 4, tee);
-		writeInt(headerLength, 4, tee);
-		writeInt(controlByteCount, 4, tee);
+	void writeContent(OutputStream out) throws IOException {
+		writeString(IDENTIFIER, 4, out);
+		writeInt(headerLength, 4, out);
+		writeInt(controlByteCount, 4, out);
 		for (MobiContentTagEntry tag : tags) {
 			tag.writeContent(out);
 		}
-		return branch.toByteArray();
 	}
 	
 	@Override
@@ -84,6 +82,62 @@ public class MobiContentTagx extends MobiContent {
 
 	public void setTags(List<MobiContentTagEntry> tags) {
 		this.tags = tags;
+		this.tagValuesTable = null;
+	}
+	
+	/**
+	 * @return The tags as four ints per tag: tag number, values per entry, bitmask and end flag.
+	 */
+	int[] getTagValuesTable() {
+		if(tagValuesTable == null) {
+			int[] table = new int[tags.size() * 4];
+			for (int i = 0; i < tags.size(); i++) {
+				MobiContentTagEntry tag = tags.get(i);
+				table[i * 4] = tag.getTagNumber();
+				table[i * 4 + 1] = tag.getValuesCount();
+				table[i * 4 + 2] = tag.getBitmask();
+				table[i * 4 + 3] = tag.getControlByte();
+			}
+			tagValuesTable = table;
+		}
+		return tagValuesTable;
+	}
+	
+	/**
+	 * @return The position of the given tag in the tag values of an entry or <code>-1</code> if the entries have no such tag.
+	 * @see MobiContentIndex#readEntryValues(int, MobiContentTagx, int[])
+	 */
+	int getValueTagIndex(int tag) {
+		int valueTag = 0;
+		for (MobiContentTagEntry tagEntry : tags) {
+			if(tagEntry.getControlByte() != 1) {
+				if(tagEntry.getTagNumber() == tag) {
+					return valueTag;
+				}
+				valueTag++;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * @return The number of tags without the end of control byte markers.
+	 */
+	int getValueTagCount() {
+		int count = 0;
+		for (MobiContentTagEntry tag : tags) {
+			if(tag.getControlByte() != 1) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return The number of control bytes in front of the tag values of each index entry.
+	 */
+	public int getControlByteCount() {
+		return controlByteCount;
 	}
 
 }
@@ -2,27 +2,48 @@ package org.rr.mobi4java;
 
 import static org.apache.commons.collections4.CollectionUtils.collect;
 import static org.rr.mobi4java.ByteUtils.chunk;
-import static org.rr.mobi4java.MobiUtils.removeRandomBytes;
 import static org.rr.mobi4java.MobiUtils.removeUtfReplacementCharacter;
 import static org.rr.mobi4java.util.MobiLz77.lz77Decode;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.apache.commons.collections4.Transformer;
 import org.rr.mobi4java.EXTHRecord.RECORD_TYPE;
 import org.rr.mobi4java.MobiContent.CONTENT_TYPE;
 import org.rr.mobi4java.MobiContentHeader.COMPRESSION_CODE;
+import org.rr.mobi4java.util.MobiHuffCdic;
+import org.rr.mobi4java.util.MobiLz77;
+import org.rr.mobi4java.util.MobiLz77.COMPRESSION_LEVEL;
 
 
 public class MobiDocument {
 	
 	/** Max size of a text content record. If the text is longer than this size, the text must be chunked. */
 	private static final int DEFAULT_TEXT_CONTENT_RECORD_SIZE = 4096;
+	
+	/** The number of resolved forms which are kept by {@link #resolveHeadword(String)}. */
+	private static final int INFLECTION_CACHE_SIZE = 1024;
+	
+	/** The default number of text records from which on the text content is decompressed in parallel. */
+	private static final int DEFAULT_PARALLEL_DECODE_THRESHOLD = 32;
 
 	private PDBHeader pdbHeader;
 	
@@ -32,6 +53,49 @@ public class MobiDocument {
 	
 	private MobiMetaData mobiMetaData;
 	
+	private ExecutorService executor;
+	
+	private int parallelDecodeThreshold = DEFAULT_PARALLEL_DECODE_THRESHOLD;
+	
+	private COMPRESSION_LEVEL compressionLevel = COMPRESSION_LEVEL.NORMAL;
+	
+	/** The decoder for HUFF/CDIC compressed text records which is created with the first decoded record. */
+	private MobiHuffCdic huffCdic;
+	
+	/**
+	 * The offsets of the text records in the decompressed text with an additional entry for the end of the text. Created with the first
+	 * {@link #getText(long, int)} call.
+	 */
+	private long[] textRecordOffsets;
+	
+	/** Tells if the {@link #textRecordOffsets} are taken from the decompressed records or only derived from the record size. */
+	private boolean textRecordOffsetsExact;
+	
+	/** The text records from which the exact {@link #textRecordOffsets} are taken. */
+	private MobiContent[] textRecordOffsetsContents;
+	
+	/** The modification counts of the {@link #textRecordOffsetsContents} at the time the offsets were taken. */
+	private int[] textRecordOffsetsModificationCounts;
+	
+	private MobiTextRecordCache textRecordCache;
+	
+	/** The decoded NCX index which is created with the first {@link #getTableOfContents()} call. */
+	private MobiTableOfContents tableOfContents;
+	
+	/** The orthographic index of a dictionary which is created with the first {@link #lookup(String)} call. */
+	private MobiOrthographicIndex orthographicIndex;
+	
+	/** The inflection index of a dictionary which is created with the first {@link #resolveHeadword(String)} call. */
+	private MobiInflectionIndex inflectionIndex;
+	
+	/**
+	 * Holds the default executor which is only created if a {@link MobiDocument} needs it.
+	 */
+	private static class DefaultExecutorHolder {
+		
+		private static final ExecutorService EXECUTOR = new ForkJoinPool();
+	}
+	
 	MobiDocument(PDBHeader pdbHeader, MobiContentHeader mobiHeader, List<MobiContent> mobiContent) {
 		this.pdbHeader = pdbHeader;
 		this.mobiHeader = mobiHeader;
@@ -207,67 +271,742 @@ public class MobiDocument {
 	}
 	
 	/**
-	 * Get the mobi html formatted content.
+	 * Get the mobi html formatted content. Documents with at least {@link #getParallelDecodeThreshold()} text records are decompressed in
+	 * parallel with the executor of this {@link MobiDocument}. HUFF/CDIC compressed documents are always decompressed sequentially.
 	 *  
 	 * @return The text part if the mobi document. Never returns <code>null</code>.
 	 * @throws IOException
 	 */
   public String getTextContent() throws IOException {
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
   	List<MobiContent> contents = MobiUtils.findContentsByType(mobiContents, CONTENT_TYPE.CONTENT);
-  	for (MobiContent mobiContent : contents) {
-  		byte[] decoded = null;
-			if (mobiHeader.getCompressionCode() == COMPRESSION_CODE.PALM_DOC) {
-				decoded = lz77Decode(mobiContent.getContent());
-			} else if (mobiHeader.getCompressionCode() == COMPRESSION_CODE.NONE) {
-				decoded = mobiContent.getContent();
-			} else if (mobiHeader.getCompressionCode() == COMPRESSION_CODE.HUFF_CDIC) {
-				// TODO 
-				throw new UnsupportedEncodingException("HUFF/CDIC encoding is not supported."); 
+  	if(contents.size() >= parallelDecodeThreshold && contents.size() > 1 && mobiHeader.getCompressionCode() != COMPRESSION_CODE.HUFF_CDIC) {
+  		String textContent = getTextContentParallel(contents);
+  		if(textContent != null) {
+  			return textContent;
+  		}
+  	}
+  	
+		long remaining = getTextLengthLimit();
+		// the initial size is only a hint, so the untrusted text length of the header is limited by the size of the text records.
+		long initialSize = Math.min(remaining, (long) contents.size() * getValidRecordSize());
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) Math.max(initialSize, 32));
+  	for (int i = 0; i < contents.size(); i++) {
+  		byte[] decoded = getTextRecord(i, contents.get(i));
+  		int length = (int) Math.min(decoded.length, remaining);
+			outputStream.write(decoded, 0, length);
+			remaining -= length;
+		}
+		return removeUtfReplacementCharacter(outputStream.toString(getCharacterEncoding()));
+  }
+  
+  /**
+   * Open a stream over the mobi html formatted content. Other than {@link #getTextContent()}, the text records are decompressed one by one
+   * while the stream is read, so only a single decompressed record is held in memory. The bytes are encoded with the
+   * {@link #getCharacterEncoding()} of this {@link MobiDocument}.
+   * 
+   * @return The stream over the text part of the mobi document. The stream must not be used after the text of the document has been
+   *         changed.
+   */
+  public InputStream openTextStream() {
+  	int recordSize = getValidRecordSize();
+  	return new MobiTextInputStream(this, MobiUtils.findContentsByType(mobiContents, CONTENT_TYPE.CONTENT), getTextLengthLimit(), recordSize);
+  }
+  
+  /**
+   * Get the size of the decompressed text records defined by the mobi header.
+   * 
+   * @return The record size or {@link #DEFAULT_TEXT_CONTENT_RECORD_SIZE} if the mobi header did not define a valid record size.
+   */
+  private int getValidRecordSize() {
+  	// pdb records could not be bigger than 64 KB, so a record size above is not a valid one.
+  	return mobiHeader.getRecordSize() > 0 && mobiHeader.getRecordSize() <= 0x10000 ? mobiHeader.getRecordSize() : DEFAULT_TEXT_CONTENT_RECORD_SIZE;
+  }
+  
+  /**
+   * Get the number of text bytes defined by the mobi header. Text records may be padded behind this length.
+   * 
+   * @return The text length or {@link Long#MAX_VALUE} if the mobi header did not define a text length.
+   */
+  private long getTextLengthLimit() {
+  	return mobiHeader.getTextLength() > 0 ? mobiHeader.getTextLength() : Long.MAX_VALUE;
+  }
+  
+  /**
+   * Open a reader over the mobi html formatted content. The text records are decompressed one by one while the reader is read. Characters
+   * which are split between two text records are decoded correctly and utf replacement characters are skipped like with
+   * {@link #getTextContent()}.
+   * 
+   * @return The reader over the text part of the mobi document. The reader must not be used after the text of the document has been
+   *         changed.
+   * @throws UnsupportedEncodingException Happens if the {@link MobiDocument} defines an erroneous character encoding.
+   */
+  public Reader openTextReader() throws UnsupportedEncodingException {
+  	return new MobiTextReader(new InputStreamReader(openTextStream(), getCharacterEncoding()));
+  }
+  
+  /**
+   * Get a part of the mobi html formatted content. Only the text records which are covering the requested range are decompressed.
+   * Characters which are cut at the start or the end of the range are skipped.
+   * 
+   * @param offset The byte offset in the text encoded with the {@link #getCharacterEncoding()} of this {@link MobiDocument}.
+   * @param length The number of bytes to get. Less bytes are returned if the text ends before.
+   * @return The requested text part. Never returns <code>null</code>.
+   * @throws IOException
+   * @throws IndexOutOfBoundsException if the offset or the length is negative.
+   */
+  public String getText(long offset, int length) throws IOException {
+  	if(offset < 0 || length < 0) {
+  		throw new IndexOutOfBoundsException("Invalid text range " + offset + "/" + length);
+  	}
+  	
+  	List<MobiContent> contents = MobiUtils.findContentsByType(mobiContents, CONTENT_TYPE.CONTENT);
+  	byte[] text = getText(contents, getTextRecordOffsets(contents), offset, length);
+  	if(text == null) {
+  		// the text records did not fit to the record size of the mobi header
+  		textRecordOffsets = createTextRecordOffsets(contents);
+  		textRecordOffsetsExact = true;
+  		text = getText(contents, textRecordOffsets, offset, length);
+  	}
+  	return removeUtfReplacementCharacter(new String(text, getCharacterEncoding()));
+  }
+  
+  /**
+   * Copy the requested range from those text records which are covering it.
+   * 
+   * @return The bytes of the requested range or <code>null</code> if a decompressed record did not match the given offsets.
+   */
+	private byte[] getText(List<MobiContent> contents, long[] offsets, long offset, int length) throws IOException {
+		int recordCount = offsets.length - 1;
+		long textLength = offsets[recordCount];
+		if(offset >= textLength || length == 0) {
+			return new byte[0];
+		}
+		long end = Math.min(offset + length, textLength);
+		byte[] text = new byte[(int) (end - offset)];
+		for (int i = findTextRecord(offsets, offset); i < recordCount && offsets[i] < end; i++) {
+			byte[] decoded = getTextRecord(i, contents.get(i));
+			long recordLength = offsets[i + 1] - offsets[i];
+			if(decoded.length < recordLength || (decoded.length > recordLength && i < recordCount - 1 && !textRecordOffsetsExact)) {
+				return null;
+			}
+			long from = Math.max(offset, offsets[i]);
+			long to = Math.min(end, offsets[i + 1]);
+			System.arraycopy(decoded, (int) (from - offsets[i]), text, (int) (from - offset), (int) (to - from));
+		}
+		return text;
+	}
+	
+	/**
+	 * Binary search for the last text record which starts at or before the given offset.
+	 */
+	private static int findTextRecord(long[] offsets, long offset) {
+		int low = 0;
+		int high = offsets.length - 2;
+		while(low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if(offsets[mid] <= offset) {
+				low = mid;
 			} else {
-				throw new IllegalArgumentException("Compression not supported " + mobiHeader.getCompressionCode());
+				high = mid - 1;
 			}
+		}
+		return low;
+	}
+	
+	/**
+	 * Get the offsets of the text records. As long as the mobi header record size and text length are fitting to the number of text
+	 * records, the offsets are derived from them without decompressing any record.
+	 */
+	private long[] getTextRecordOffsets(List<MobiContent> contents) throws IOException {
+		long[] offsets = textRecordOffsets;
+		if(offsets == null || offsets.length != contents.size() + 1 || (textRecordOffsetsExact && isTextRecordChanged(contents))) {
+			int recordSize = mobiHeader.getRecordSize();
+			long textLength = mobiHeader.getTextLength();
+			int lastRecord = contents.size() - 1;
+			if(recordSize > 0 && lastRecord >= 0 && textLength > (long) lastRecord * recordSize && textLength <= (long) contents.size() * recordSize) {
+				offsets = new long[contents.size() + 1];
+				for (int i = 0; i <= lastRecord; i++) {
+					offsets[i] = (long) i * recordSize;
+				}
+				offsets[contents.size()] = textLength;
+				textRecordOffsetsExact = false;
+			} else {
+				offsets = createTextRecordOffsets(contents);
+				textRecordOffsetsExact = true;
+			}
+			textRecordOffsets = offsets;
+		}
+		return offsets;
+	}
+	
+	/**
+	 * Create the offsets of the text records by decompressing all of them. The records and their modification counts are kept to detect
+	 * changed records with {@link #isTextRecordChanged(List)}.
+	 */
+	private long[] createTextRecordOffsets(List<MobiContent> contents) throws IOException {
+		long[] offsets = new long[contents.size() + 1];
+		MobiContent[] offsetsContents = new MobiContent[contents.size()];
+		int[] modificationCounts = new int[contents.size()];
+		long remaining = getTextLengthLimit();
+		for (int i = 0; i < contents.size(); i++) {
+			offsetsContents[i] = contents.get(i);
+			modificationCounts[i] = offsetsContents[i].getModificationCount();
+			long length = Math.min(getTextRecord(i, offsetsContents[i]).length, remaining);
+			remaining -= length;
+			offsets[i + 1] = offsets[i] + length;
+		}
+		textRecordOffsetsContents = offsetsContents;
+		textRecordOffsetsModificationCounts = modificationCounts;
+		return offsets;
+	}
+	
+	/**
+	 * Tells if one of the given text records is not the one or has been changed since the exact offsets were taken from it.
+	 */
+	private boolean isTextRecordChanged(List<MobiContent> contents) {
+		MobiContent[] offsetsContents = textRecordOffsetsContents;
+		int[] modificationCounts = textRecordOffsetsModificationCounts;
+		if(offsetsContents == null || offsetsContents.length != contents.size()) {
+			return true;
+		}
+		for (int i = 0; i < offsetsContents.length; i++) {
+			if(offsetsContents[i] != contents.get(i) || modificationCounts[i] != offsetsContents[i].getModificationCount()) {
+				return true;
+			}
+		}
+		return false;
+	}
+  
+  /**
+   * Decompress the text records in parallel into one buffer with the size of the text length from the mobi header. Each record is
+   * decompressed into its own slot of the record size, so the slots must not be joined afterwards.
+   * 
+   * @return The text content or <code>null</code> if the decompressed records did not fit to the text length and record size of the
+   *         mobi header.
+   */
+	private String getTextContentParallel(List<MobiContent> contents) throws IOException {
+		final int recordSize = mobiHeader.getRecordSize();
+		final int textLength = mobiHeader.getTextLength();
+		int lastRecord = contents.size() - 1;
+		if(recordSize <= 0 || textLength <= (long) lastRecord * recordSize || textLength > (long) contents.size() * recordSize) {
+			return null;
+		}
+		
+		final byte[] text = new byte[textLength];
+		List<Callable<Integer>> tasks = new ArrayList<>(contents.size());
+		for (int i = 0; i < contents.size(); i++) {
+			final int index = i;
+			final MobiContent mobiContent = contents.get(i);
+			final int offset = i * recordSize;
+			tasks.add(new Callable<Integer>() {
 
-			decoded = removeRandomBytes(decoded);
-			
-			if (mobiContent.getType() != CONTENT_TYPE.INDEX) {
-				outputStream.write(decoded);
+				@Override
+				public Integer call() throws IOException {
+					int length = Math.min(recordSize, textLength - offset);
+					if(length == recordSize) {
+						return decodeTextRecord(index, mobiContent, ByteBuffer.wrap(text, offset, length));
+					}
+					
+					// the last record could be padded beyond the text length, so it's decompressed into a buffer of the record size.
+					ByteBuffer lastRecordBuffer = ByteBuffer.allocate(recordSize);
+					int decodedLength = decodeTextRecord(index, mobiContent, lastRecordBuffer);
+					if(decodedLength < 0) {
+						return -1;
+					}
+					decodedLength = Math.min(decodedLength, length);
+					System.arraycopy(lastRecordBuffer.array(), 0, text, offset, decodedLength);
+					return decodedLength;
+				}
+			});
+		}
+		
+		List<Integer> decodedLengths = invokeAll(tasks);
+		for (int i = 0; i < lastRecord; i++) {
+			if(decodedLengths.get(i) != recordSize) {
+				return null;
 			}
 		}
-		return removeUtfReplacementCharacter(outputStream.toString(getCharacterEncoding()));
+		if(decodedLengths.get(lastRecord) < 0) {
+			return null;
+		}
+		int length = lastRecord * recordSize + decodedLengths.get(lastRecord);
+		return removeUtfReplacementCharacter(new String(text, 0, length, getCharacterEncoding()));
+	}
+
+	/**
+	 * Get the decompressed text record from the text record cache or decompress it if it's not cached. The returned array must not be
+	 * changed.
+	 * 
+	 * @param index The index of the record in the list of text records.
+	 * @param mobiContent The text record.
+	 */
+	byte[] getTextRecord(int index, MobiContent mobiContent) throws IOException {
+		MobiTextRecordCache cache = textRecordCache;
+		if(cache == null) {
+			return decodeTextRecord(mobiContent);
+		}
+		byte[] decoded = cache.get(this, index, mobiContent);
+		if(decoded == null) {
+			decoded = decodeTextRecord(mobiContent);
+			cache.put(this, index, mobiContent, decoded);
+		}
+		return decoded;
+	}
+	
+	/**
+	 * Decompress the given text record into the given buffer. PalmDOC compressed records are decompressed directly into the buffer.
+	 * 
+	 * @param index The index of the record in the list of text records.
+	 * @param mobiContent The text record.
+	 * @param dst The buffer for the decompressed bytes. Its position is advanced by the number of decompressed bytes.
+	 * @return The number of decompressed bytes or <code>-1</code> if the decompressed record did not fit into the remaining buffer.
+	 */
+	int decodeTextRecord(int index, MobiContent mobiContent, ByteBuffer dst) throws IOException {
+		if(textRecordCache == null && mobiHeader.getCompressionCode() == COMPRESSION_CODE.PALM_DOC) {
+			ByteBuffer content = mobiContent.getContentBuffer();
+			content.limit(content.position() + getTextRecordLength(content));
+			try {
+				return lz77Decode(content, dst);
+			} catch (BufferOverflowException e) {
+				return -1;
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Invalid PalmDOC text record " + index, e);
+			}
+		}
+		
+		byte[] decoded = getTextRecord(index, mobiContent);
+		if(decoded.length > dst.remaining()) {
+			return -1;
+		}
+		dst.put(decoded);
+		return decoded.length;
+	}
+	
+	private byte[] decodeTextRecord(MobiContent mobiContent) throws IOException {
+		if (mobiHeader.getCompressionCode() == COMPRESSION_CODE.PALM_DOC) {
+			ByteBuffer content = mobiContent.getContentBuffer();
+			int length = getTextRecordLength(content);
+			content.limit(content.position() + length);
+			// a back reference with two bytes is the best case and produces ten bytes.
+			byte[] decoded = new byte[length * 5];
+			try {
+				return Arrays.copyOf(decoded, lz77Decode(content, ByteBuffer.wrap(decoded)));
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Invalid PalmDOC text record", e);
+			}
+		}
+		
+		byte[] content = mobiContent.getContent();
+		int length = getTextRecordLength(ByteBuffer.wrap(content));
+		if (mobiHeader.getCompressionCode() == COMPRESSION_CODE.NONE) {
+			return length == content.length ? content : Arrays.copyOf(content, length);
+		} else if (mobiHeader.getCompressionCode() == COMPRESSION_CODE.HUFF_CDIC) {
+			MobiHuffCdic decoder = getHuffCdic();
+			synchronized (decoder) {
+				return decoder.decode(content, 0, length);
+			}
+		}
+		throw new IllegalArgumentException("Compression not supported " + mobiHeader.getCompressionCode());
+	}
+	
+	/**
+	 * Get the length of the given text record without the trailing entries described by the extra record data flags. The size of each
+	 * trailing entry is stored backward encoded at its end, so the entries are removed from the end of the record without looking at the
+	 * text. The multibyte character overlap entry of bit 0 is the innermost one.
+	 * 
+	 * @param content The text record between position and limit.
+	 */
+	private int getTextRecordLength(ByteBuffer content) {
+		int flags = mobiHeader.getExtraRecordDataFlags();
+		int start = content.position();
+		int end = content.limit();
+		for (int flag = flags >>> 1; flag != 0 && end > start; flag >>>= 1) {
+			if((flag & 1) != 0) {
+				end -= getTrailingEntrySize(content, start, end);
+			}
+		}
+		if((flags & 1) != 0 && end > start) {
+			end -= (content.get(end - 1) & 0x03) + 1;
+		}
+		return Math.max(end - start, 0);
+	}
+	
+	/**
+	 * Read the backward encoded size of the trailing entry ending at the given position. The size is read from the last four bytes where a
+	 * byte with the high bit set starts the value.
+	 */
+	private static int getTrailingEntrySize(ByteBuffer content, int start, int end) {
+		int size = 0;
+		for (int i = Math.max(end - 4, start); i < end; i++) {
+			int b = content.get(i) & 0xff;
+			if((b & 0x80) != 0) {
+				size = 0;
+			}
+			size = (size << 7) | (b & 0x7f);
+		}
+		return size;
+	}
+	
+	/**
+	 * Get the HUFF/CDIC decoder for this document. The decoder is created from the HUFF record and the CDIC records referenced by the mobi
+	 * header with the first call and reused for all following text records.
+	 */
+	private MobiHuffCdic getHuffCdic() throws IOException {
+		if(huffCdic == null) {
+			int huffmanRecordOffset = mobiHeader.getHuffmanRecordOffset();
+			int huffmanRecordCount = mobiHeader.getHuffmanRecordCount();
+			if(huffmanRecordOffset <= 0 || huffmanRecordCount < 2 || huffmanRecordOffset + huffmanRecordCount > mobiContents.size()) {
+				throw new IOException("Invalid HUFF/CDIC records " + huffmanRecordOffset + "/" + huffmanRecordCount);
+			}
+			MobiHuffCdic decoder = new MobiHuffCdic(mobiContents.get(huffmanRecordOffset).getContent());
+			for (int i = 1; i < huffmanRecordCount; i++) {
+				decoder.addCdic(mobiContents.get(huffmanRecordOffset + i).getContent());
+			}
+			huffCdic = decoder;
+		}
+		return huffCdic;
+	}
+	
+	/**
+	 * Get the table of contents which is decoded from the NCX index of this document. The index is decoded with the first call of this
+	 * method.
+	 * 
+	 * @return The table of contents which is empty if the document has no NCX index. Never returns <code>null</code>.
+	 * @throws IOException if the NCX index is not valid.
+	 */
+	public MobiTableOfContents getTableOfContents() throws IOException {
+		if(tableOfContents == null) {
+			tableOfContents = readTableOfContents();
+		}
+		return tableOfContents;
+	}
+	
+	/**
+	 * Get the text of an entry of the {@link #getTableOfContents()}. The range of the text is taken from the position and the length of
+	 * the entry and only the text records which are covering this range are decompressed, see {@link #getText(long, int)}.
+	 * 
+	 * @param tocEntry The number of the entry in the table of contents.
+	 * @return The mobi html formatted text of the entry. Never returns <code>null</code>.
+	 * @throws IOException if the NCX index is not valid or the entry has no position.
+	 * @throws IndexOutOfBoundsException if there is no entry with the given number.
+	 */
+	public String getChapterText(int tocEntry) throws IOException {
+		MobiTableOfContents toc = getTableOfContents();
+		int position = toc.getPosition(tocEntry);
+		if(position < 0) {
+			throw new IOException("Table of contents entry " + tocEntry + " has no position");
+		}
+		int length = toc.getLength(tocEntry);
+		if(length < 0) {
+			// without a length the entry ends with the next entry behind it or with the text.
+			length = Math.max(0, mobiHeader.getTextLength() - position);
+			for (int i = tocEntry + 1; i < toc.size(); i++) {
+				if(toc.getPosition(i) > position) {
+					length = toc.getPosition(i) - position;
+					break;
+				}
+			}
+		}
+		return getText(position, length);
+	}
+	
+	private MobiTableOfContents readTableOfContents() throws IOException {
+		int indxRecordIndex = mobiHeader.getIndxRecordIndex();
+		if(indxRecordIndex <= 0 || indxRecordIndex >= mobiContents.size()) {
+			return MobiTableOfContents.EMPTY;
+		}
+		MobiContentIndex index = getIndexRecord(indxRecordIndex);
+		List<MobiContentIndex> dataRecords = getIndexDataRecords(index, indxRecordIndex);
+		int firstCncxRecordIndex = indxRecordIndex + index.getIndexCount() + 1;
+		int cncxRecordCount = Math.max(0, Math.min(index.getCncxRecordCount(), mobiContents.size() - firstCncxRecordIndex));
+		List<MobiContent> cncxRecords = new ArrayList<>(mobiContents.subList(firstCncxRecordIndex, firstCncxRecordIndex + cncxRecordCount));
+		return MobiTableOfContents.read(index, dataRecords, new MobiCncx(cncxRecords, index.getCharacterEncoding()));
+	}
+	
+	/**
+	 * Search the given headword in the orthographic index of this dictionary. The index is searched with a binary search over the
+	 * encoded entry keys, so the headword must be written exactly like the headword in the dictionary.
+	 * 
+	 * @param headword The headword to search.
+	 * @return The offset of the headword entry in the decompressed text or <code>-1</code> if the headword is not part of the index or
+	 *         the document is no dictionary.
+	 * @throws IOException if the orthographic index is not valid.
+	 * @see #getText(long, int)
+	 */
+	public int lookup(String headword) throws IOException {
+		MobiOrthographicIndex index = getOrthographicIndex();
+		return index != null ? index.lookup(headword) : -1;
+	}
+	
+	/**
+	 * Resolve an inflected form like "mice" to its headword "mouse" with the inflection index of this dictionary. The inflected forms of
+	 * all headwords are created with the first call of this method, the resolved forms are cached.
+	 * 
+	 * @param form The inflected form or a headword.
+	 * @return The headword which can be passed to {@link #lookup(String)} or <code>null</code> if the given form is neither a headword
+	 *         nor an inflected form of a headword.
+	 * @throws IOException if the orthographic or the inflection index is not valid.
+	 */
+	public String resolveHeadword(String form) throws IOException {
+		MobiOrthographicIndex index = getOrthographicIndex();
+		if(index == null) {
+			return null;
+		}
+		if(inflectionIndex == null) {
+			int inflectionIndexRecord = mobiHeader.getInflectionIndex();
+			if(inflectionIndexRecord <= 0 || inflectionIndexRecord >= mobiContents.size()) {
+				return index.lookup(form) >= 0 ? form : null;
+			}
+			MobiContentIndex inflection = getIndexRecord(inflectionIndexRecord);
+			inflectionIndex = new MobiInflectionIndex(index, inflection, getIndexDataRecords(inflection, inflectionIndexRecord),
+					INFLECTION_CACHE_SIZE);
+		}
+		return inflectionIndex.resolve(form);
+	}
+	
+	/**
+	 * @return The orthographic index or <code>null</code> if the document is no dictionary.
+	 */
+	private MobiOrthographicIndex getOrthographicIndex() throws IOException {
+		if(orthographicIndex == null) {
+			int orthographicIndexRecord = mobiHeader.getOrthographicIndex();
+			if(orthographicIndexRecord <= 0 || orthographicIndexRecord >= mobiContents.size()) {
+				return null;
+			}
+			MobiContentIndex index = getIndexRecord(orthographicIndexRecord);
+			orthographicIndex = new MobiOrthographicIndex(index, getIndexDataRecords(index, orthographicIndexRecord));
+		}
+		return orthographicIndex;
+	}
+	
+	/**
+	 * @return The data records which are following the given main index record.
+	 */
+	private List<MobiContentIndex> getIndexDataRecords(MobiContentIndex index, int recordIndex) throws IOException {
+		List<MobiContentIndex> dataRecords = new ArrayList<>(index.getIndexCount());
+		for (int i = 1; i <= index.getIndexCount(); i++) {
+			dataRecords.add(getIndexRecord(recordIndex + i));
+		}
+		return dataRecords;
+	}
+	
+	private MobiContentIndex getIndexRecord(int recordIndex) throws IOException {
+		MobiContent content = recordIndex < mobiContents.size() ? mobiContents.get(recordIndex) : null;
+		if(!(content instanceof MobiContentIndex)) {
+			throw new IOException("Expected to find an index record at " + recordIndex);
+		}
+		return (MobiContentIndex) content;
+	}
+  
+  /**
+   * Get the minimum number of text records a document must have to decompress them in parallel.
+   */
+  public int getParallelDecodeThreshold() {
+  	return parallelDecodeThreshold;
+  }
+  
+  /**
+   * Set the minimum number of text records a document must have to decompress them in parallel with {@link #getTextContent()}. Smaller
+   * documents are decompressed sequentially because the overhead of the parallel decompression did not pay off.
+   * 
+   * @param parallelDecodeThreshold The number of text records. Use {@link Integer#MAX_VALUE} to always decompress sequentially.
+   */
+  public void setParallelDecodeThreshold(int parallelDecodeThreshold) {
+  	this.parallelDecodeThreshold = parallelDecodeThreshold;
   }
   
   /**
-   * Removes the old text content and applies the given text to the {@link MobiDocument}. If a book index exists it will be removed. 
+   * Get the compression level which is used by {@link #setTextContent(String, COMPRESSION_CODE)} for PalmDOC compressed text.
+   */
+  public COMPRESSION_LEVEL getCompressionLevel() {
+  	return compressionLevel;
+  }
+  
+  /**
+   * Set the compression level which is used by {@link #setTextContent(String, COMPRESSION_CODE)} for PalmDOC compressed text. The
+   * default is {@link COMPRESSION_LEVEL#NORMAL}.
+   * 
+   * @param compressionLevel {@link COMPRESSION_LEVEL#FAST} for a faster compression or {@link COMPRESSION_LEVEL#MAX} for the smallest
+   *          text records.
+   */
+  public void setCompressionLevel(COMPRESSION_LEVEL compressionLevel) {
+  	this.compressionLevel = Objects.requireNonNull(compressionLevel);
+  }
+  
+  /**
+   * Removes the old text content and applies the given text uncompressed to the {@link MobiDocument}. A book index is created for the
+   * chapters of the text, see {@link #setTextContent(String, COMPRESSION_CODE)}.
    * 
    * @param mobiText The mobi html formatted text which should be set to the {@link MobiDocument}.
    * @throws IOException
+   * @see #setTextContent(String, COMPRESSION_CODE)
    */
   public void setTextContent(String mobiText) throws IOException {
+  	setTextContent(mobiText, COMPRESSION_CODE.NONE);
+  }
+  
+  /**
+   * Removes the old text content and applies the given text to the {@link MobiDocument}. The text records are compressed in parallel
+   * with the executor of this {@link MobiDocument}.
+   * 
+   * An existing book index is replaced by a new one which is created for the chapters of the text. A chapter starts with the first
+   * heading after a <code>&lt;mbp:pagebreak/&gt;</code> and the text of the heading is used as the name of the chapter, see
+   * {@link #getTableOfContents()}. No book index is created if the text has no chapters.
+   * 
+   * @param mobiText The mobi html formatted text which should be set to the {@link MobiDocument}.
+   * @param compression The compression for the new text records. Only {@link COMPRESSION_CODE#NONE} and
+   *          {@link COMPRESSION_CODE#PALM_DOC} are supported.
+   * @throws IOException
+   * @throws IllegalArgumentException if the given compression is not supported.
+   * @see #setExecutor(ExecutorService)
+   */
+  public void setTextContent(String mobiText, COMPRESSION_CODE compression) throws IOException {
+  	if(compression != COMPRESSION_CODE.NONE && compression != COMPRESSION_CODE.PALM_DOC) {
+  		throw new IllegalArgumentException("Compression not supported " + compression);
+  	}
+  	
+  	byte[] encodedMobiText = mobiText.getBytes(getCharacterEncoding());
+  	List<byte[]> chunkedMobiText = chunk(encodedMobiText, DEFAULT_TEXT_CONTENT_RECORD_SIZE);
+  	if(compression == COMPRESSION_CODE.PALM_DOC) {
+  		chunkedMobiText = lz77Encode(chunkedMobiText);
+  	}
+  	
   	int firstContentIndex = MobiUtils.getTextContentStartIndex(mobiHeader);
   	int lastContentIndex = firstContentIndex + mobiHeader.getRecordCount();
 
   	// remove text content including a possible book index and a EOT record.
   	removeContent(firstContentIndex, Math.max(lastContentIndex, mobiHeader.getFirstImageIndex()));
   	
-  	byte[] encodedMobiText = mobiText.getBytes(getCharacterEncoding());
-  	mobiHeader.setCompressionCode(COMPRESSION_CODE.NONE);
-  	
-  	Collection<byte[]> chunkedMobiText = chunk(encodedMobiText, DEFAULT_TEXT_CONTENT_RECORD_SIZE);
+  	mobiHeader.setCompressionCode(compression);
+  	mobiHeader.setExtraRecordDataFlags(0);
+  	huffCdic = null;
+  	textRecordOffsets = null;
+  	textRecordOffsetsContents = null;
+  	textRecordOffsetsModificationCounts = null;
+  	tableOfContents = null;
+  	orthographicIndex = null;
+  	inflectionIndex = null;
+  	mobiHeader.setIndxRecordIndex(-1);
+  	mobiHeader.setOrthographicIndex(-1);
+  	mobiHeader.setInflectionIndex(-1);
+  	if(textRecordCache != null) {
+  		textRecordCache.invalidate(this);
+  	}
   	
   	mobiContents.addAll(firstContentIndex, wrapToMobiContent(chunkedMobiText));
   	mobiContents.add(firstContentIndex + chunkedMobiText.size(), MobiContentRecordFactory.createEndOfTextRecord());
   	
-  	mobiHeader.setTextLength(mobiText.length());
+  	mobiHeader.setTextLength(encodedMobiText.length);
   	mobiHeader.setRecordCount(chunkedMobiText.size());
   	mobiHeader.setRecordSize(DEFAULT_TEXT_CONTENT_RECORD_SIZE);
   	
-  	// set non book index and first image index to the same value because there is no book index at this point,
-  	// which is usually located between these two indices.
-  	int mobiTextContentSize = chunkedMobiText.size() + 1;
-  	adjustIndices(firstContentIndex + mobiTextContentSize, firstContentIndex + mobiTextContentSize);
+  	// the book index is located between the first non book index and the first image index.
+  	int firstNonBookIndex = firstContentIndex + chunkedMobiText.size() + 1;
+  	MobiNcxIndexBuilder indexBuilder = new MobiNcxIndexBuilder(getCharacterEncoding(), mobiHeader.getTextEncoding());
+  	indexBuilder.addChapters(encodedMobiText);
+  	List<MobiContent> indexRecords = indexBuilder.build(encodedMobiText.length);
+  	mobiContents.addAll(firstNonBookIndex, indexRecords);
+  	if(!indexRecords.isEmpty()) {
+  		mobiHeader.setIndxRecordIndex(firstNonBookIndex);
+  	}
+  	adjustIndices(firstNonBookIndex, firstNonBookIndex + indexRecords.size());
   	adjustCoverAndThumbnailOffsets(mobiHeader.getFirstImageIndex());
   }
+  
+  /**
+   * Compress all given text records. The records are independent from each other, so they're compressed in parallel.
+   * 
+   * @return The compressed records in the same order as the given ones.
+   */
+	private List<byte[]> lz77Encode(List<byte[]> records) throws IOException {
+		final COMPRESSION_LEVEL level = compressionLevel;
+		if(records.size() <= 1) {
+			List<byte[]> result = new ArrayList<>(records.size());
+			for (byte[] record : records) {
+				result.add(MobiLz77.lz77Encode(record, level));
+			}
+			return result;
+		}
+		
+		List<Callable<byte[]>> tasks = new ArrayList<>(records.size());
+		for (final byte[] record : records) {
+			tasks.add(new Callable<byte[]>() {
+
+				@Override
+				public byte[] call() {
+					return MobiLz77.lz77Encode(record, level);
+				}
+			});
+		}
+		return invokeAll(tasks);
+	}
+	
+	/**
+	 * Run all given tasks with the executor of this {@link MobiDocument} and wait until all of them are done.
+	 * 
+	 * @return The results of the tasks in the order of the given tasks.
+	 */
+	private <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+		List<T> result = new ArrayList<>(tasks.size());
+		try {
+			for (Future<T> future : getExecutor().invokeAll(tasks)) {
+				result.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(e.getMessage());
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+		return result;
+	}
+  
+  /**
+   * Get the cache for the decompressed text records of this document.
+   * 
+   * @return The cache or <code>null</code> if the text records are decompressed with each access.
+   */
+  public MobiTextRecordCache getTextRecordCache() {
+  	return textRecordCache;
+  }
+  
+  /**
+   * Set a cache for the decompressed text records. The cache is used by {@link #getTextContent()}, {@link #getText(long, int)} and the
+   * text streams and can be shared by several {@link MobiDocument} instances.
+   * 
+   * @param textRecordCache The cache or <code>null</code> to decompress the text records with each access.
+   */
+  public void setTextRecordCache(MobiTextRecordCache textRecordCache) {
+  	if(this.textRecordCache != null && this.textRecordCache != textRecordCache) {
+  		this.textRecordCache.invalidate(this);
+  	}
+  	this.textRecordCache = textRecordCache;
+  }
+  
+  /**
+   * Get the executor which is used for compressing and decompressing the text records of this {@link MobiDocument}.
+   * 
+   * @return The executor set with {@link #setExecutor(ExecutorService)} or a {@link ForkJoinPool} shared by all {@link MobiDocument}
+   *         instances. Never returns <code>null</code>.
+   */
+  public ExecutorService getExecutor() {
+  	return executor != null ? executor : DefaultExecutorHolder.EXECUTOR;
+  }
+  
+  /**
+   * Set the executor which is used for compressing and decompressing the text records of this {@link MobiDocument}. The executor is not
+   * shut down by the {@link MobiDocument}.
+   * 
+   * @param executor The executor to be used or <code>null</code> to use the shared default executor.
+   */
+  public void setExecutor(ExecutorService executor) {
+  	this.executor = executor;
+  }
 
 	private Collection<MobiContent> wrapToMobiContent(Collection<byte[]> chunkedMobiText) {
 		return collect(chunkedMobiText, new Transformer<byte[], MobiContent>() {
@@ -0,0 +1,91 @@
+package org.rr.mobi4java;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The data records of an index which are addressing their entries by a number counted over all data records. The entry numbers are
+ * references read from the index data, so an invalid entry number is reported as an invalid index with an {@link IOException}.
+ */
+class MobiIndexDataRecords {
+
+	private final MobiContentIndex[] dataRecords;
+
+	/** The number of the first entry of each data record with an additional entry for the number of all entries. */
+	private final int[] firstEntries;
+
+	/**
+	 * @param dataRecords The index data records which are following the main index record.
+	 */
+	MobiIndexDataRecords(List<MobiContentIndex> dataRecords) {
+		this.dataRecords = dataRecords.toArray(new MobiContentIndex[dataRecords.size()]);
+		this.firstEntries = new int[this.dataRecords.length + 1];
+		for (int i = 0; i < this.dataRecords.length; i++) {
+			firstEntries[i + 1] = firstEntries[i] + this.dataRecords[i].getIndexCount();
+		}
+	}
+
+	/**
+	 * @return The number of data records.
+	 */
+	int getRecordCount() {
+		return dataRecords.length;
+	}
+
+	/**
+	 * @param record The number of the data record.
+	 * @return The data record with the given number.
+	 */
+	MobiContentIndex getRecord(int record) {
+		return dataRecords[record];
+	}
+
+	/**
+	 * @return The number of entries in all data records.
+	 */
+	int getEntryCount() {
+		return firstEntries[dataRecords.length];
+	}
+
+	/**
+	 * Get the key of an entry.
+	 *
+	 * @param entry The entry number counted over all data records.
+	 * @return The undecoded key bytes.
+	 * @throws IOException if the entry is not valid.
+	 */
+	byte[] getEntryKey(int entry) throws IOException {
+		int record = getDataRecord(entry);
+		return dataRecords[record].getEntryKey(entry - firstEntries[record]);
+	}
+
+	/**
+	 * Get all values of a tag of an entry.
+	 *
+	 * @param entry The entry number counted over all data records.
+	 * @param tagx The TAGX of the main index record.
+	 * @param tag The tag number.
+	 * @return The values which are empty if the entry has no value for the tag.
+	 * @throws IOException if the entry is not valid.
+	 */
+	int[] readEntryValues(int entry, MobiContentTagx tagx, int tag) throws IOException {
+		int record = getDataRecord(entry);
+		return dataRecords[record].readEntryValues(entry - firstEntries[record], tagx, tag);
+	}
+
+	private int getDataRecord(int entry) throws IOException {
+		if(entry < 0 || entry >= getEntryCount()) {
+			throw new IOException("Invalid index entry " + entry + " of " + getEntryCount());
+		}
+		int record = Arrays.binarySearch(firstEntries, entry);
+		if(record < 0) {
+			return -record - 2;
+		}
+		// skip data records without entries
+		while (firstEntries[record + 1] == entry) {
+			record++;
+		}
+		return record;
+	}
+}
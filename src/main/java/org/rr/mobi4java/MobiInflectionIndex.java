@@ -0,0 +1,221 @@
+package org.rr.mobi4java;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The inflection index of a dictionary which resolves inflected forms to their headword in the orthographic index.
+ *
+ * The orthographic index entries reference inflection groups with the {@link #TAG_INFLECTION_GROUPS} tag. An inflection group is an entry
+ * of the inflection index which references the inflection rules with the {@link #TAG_INFLECTION_RULES} tag. The rules are the keys of
+ * further inflection index entries and describe how the inflected form is created from the headword. Because the rules only work from the
+ * headword to the inflected form, the inflected forms of all headwords are created once with the first resolved form. Only the hash of
+ * each inflected form is kept together with the number of its headword entry, the forms itself are created again for the matching
+ * entries to verify a hash match.
+ *
+ * The resolved forms are kept in a cache which is limited by its number of forms.
+ */
+class MobiInflectionIndex {
+
+	/** The tag of the orthographic index entries which references the inflection groups. */
+	private static final int TAG_INFLECTION_GROUPS = 0x2a;
+
+	/** The tag of the inflection group entries which references the inflection rules. */
+	private static final int TAG_INFLECTION_RULES = 0x1a;
+
+	private static final int MODE_INSERT_AT_START = 0x01;
+
+	private static final int MODE_INSERT_AT_END = 0x02;
+
+	private static final int MODE_DELETE_AT_END = 0x03;
+
+	private static final int MODE_DELETE_AT_START = 0x04;
+
+	/** Marks forms in the cache which could not be resolved. */
+	private static final String UNRESOLVED = new String();
+
+	private final MobiOrthographicIndex orthographicIndex;
+
+	private final MobiContentTagx tagx;
+
+	private final MobiIndexDataRecords dataRecords;
+
+	private final String encoding;
+
+	/**
+	 * The hash of each inflected form in the upper 32 bit and the number of its headword entry in the lower 32 bit in ascending order.
+	 * Created with the first resolved form.
+	 */
+	private long[] forms;
+
+	private final Map<String, String> cache;
+
+	/**
+	 * @param orthographicIndex The orthographic index which entries are referencing the inflection groups.
+	 * @param index The main inflection index record with the TAGX.
+	 * @param dataRecords The inflection index data records which are following the main index record.
+	 * @param cacheSize The maximum number of resolved forms which are kept.
+	 * @throws IOException if the index is not valid.
+	 */
+	MobiInflectionIndex(MobiOrthographicIndex orthographicIndex, MobiContentIndex index, List<MobiContentIndex> dataRecords,
+			final int cacheSize) throws IOException {
+		this.orthographicIndex = orthographicIndex;
+		this.tagx = index.getTagx();
+		if(tagx == null) {
+			throw new IOException("Inflection index record has no TAGX");
+		}
+		this.dataRecords = new MobiIndexDataRecords(dataRecords);
+		this.encoding = index.getCharacterEncoding() != null ? index.getCharacterEncoding() : "UTF-8";
+		this.cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/**
+	 * Resolve the given form to its headword.
+	 *
+	 * @param form The inflected form or a headword.
+	 * @return The headword or <code>null</code> if the given form is neither a headword nor an inflected form of a headword.
+	 * @throws IOException if the index is not valid.
+	 */
+	synchronized String resolve(String form) throws IOException {
+		String headword = cache.get(form);
+		if(headword == null) {
+			headword = orthographicIndex.lookup(form) >= 0 ? form : findHeadword(form);
+			cache.put(form, headword != null ? headword : UNRESOLVED);
+		}
+		return headword != UNRESOLVED ? headword : null;
+	}
+
+	private String findHeadword(String form) throws IOException {
+		if(forms == null) {
+			forms = createForms();
+		}
+		byte[] encodedForm = form.getBytes(encoding);
+		long hash = Arrays.hashCode(encodedForm);
+		int index = Arrays.binarySearch(forms, hash << 32);
+		for (int i = index < 0 ? -index - 1 : index; i < forms.length && (forms[i] >> 32) == hash; i++) {
+			int entry = (int) forms[i];
+			String headword = orthographicIndex.getHeadword(entry);
+			for (byte[] inflection : getInflections(entry, headword)) {
+				if(Arrays.equals(inflection, encodedForm)) {
+					return headword;
+				}
+			}
+		}
+		return null;
+	}
+
+	private long[] createForms() throws IOException {
+		long[] result = new long[Math.max(16, orthographicIndex.getEntryCount())];
+		int count = 0;
+		for (int entry = 0; entry < orthographicIndex.getEntryCount(); entry++) {
+			if(orthographicIndex.getValues(entry, TAG_INFLECTION_GROUPS).length == 0) {
+				continue;
+			}
+			for (byte[] inflection : getInflections(entry, orthographicIndex.getHeadword(entry))) {
+				if(count == result.length) {
+					result = Arrays.copyOf(result, count * 2);
+				}
+				result[count++] = ((long) Arrays.hashCode(inflection) << 32) | entry;
+			}
+		}
+		result = Arrays.copyOf(result, count);
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * Create the inflected forms of an orthographic index entry.
+	 *
+	 * @return The encoded inflected forms.
+	 */
+	private byte[][] getInflections(int entry, String headword) throws IOException {
+		byte[] encodedHeadword = headword.getBytes(encoding);
+		byte[][] inflections = new byte[0][];
+		for (int group : orthographicIndex.getValues(entry, TAG_INFLECTION_GROUPS)) {
+			int[] rules = dataRecords.readEntryValues(group, tagx, TAG_INFLECTION_RULES);
+			int count = inflections.length;
+			inflections = Arrays.copyOf(inflections, count + rules.length);
+			for (int rule : rules) {
+				byte[] inflection = applyRule(encodedHeadword, dataRecords.getEntryKey(rule));
+				if(inflection != null) {
+					inflections[count++] = inflection;
+				}
+			}
+			inflections = Arrays.copyOf(inflections, count);
+		}
+		return inflections;
+	}
+
+	/**
+	 * Apply an inflection rule to the given headword. The rule bytes <code>0x01</code> - <code>0x04</code> select the mode, the bytes
+	 * <code>0x0a</code> - <code>0x13</code> move the cursor backwards from the end of the word and all other bytes are inserted or
+	 * deleted at the cursor.
+	 *
+	 * @param headword The encoded headword.
+	 * @param rule The inflection rule.
+	 * @return The encoded inflected form or <code>null</code> if the rule does not fit to the headword.
+	 */
+	static byte[] applyRule(byte[] headword, byte[] rule) {
+		byte[] word = Arrays.copyOf(headword, headword.length + rule.length);
+		int length = headword.length;
+		int mode = -1;
+		int position = length;
+		for (byte b : rule) {
+			int value = b & 0xff;
+			if(value >= 0x0a && value <= 0x13) {
+				if(mode != MODE_INSERT_AT_END && mode != MODE_DELETE_AT_END) {
+					mode = MODE_INSERT_AT_END;
+					position = length;
+				}
+				position -= value - 0x0a;
+				if(position < 0) {
+					return null;
+				}
+			} else if(value > 0x13) {
+				if(mode == MODE_INSERT_AT_START || mode == MODE_INSERT_AT_END) {
+					System.arraycopy(word, position, word, position + 1, length - position);
+					word[position] = b;
+					length++;
+					if(mode == MODE_INSERT_AT_START) {
+						position++;
+					}
+				} else if(mode == MODE_DELETE_AT_END || mode == MODE_DELETE_AT_START) {
+					if(mode == MODE_DELETE_AT_END) {
+						position--;
+					}
+					if(position < 0 || position >= length || word[position] != b) {
+						return null;
+					}
+					System.arraycopy(word, position + 1, word, position, length - position - 1);
+					length--;
+				} else {
+					return null;
+				}
+			} else if(value == MODE_INSERT_AT_START || value == MODE_DELETE_AT_START) {
+				if(mode != MODE_INSERT_AT_START && mode != MODE_DELETE_AT_START) {
+					position = 0;
+				}
+				mode = value;
+			} else if(value == MODE_INSERT_AT_END || value == MODE_DELETE_AT_END) {
+				if(mode != MODE_INSERT_AT_END && mode != MODE_DELETE_AT_END) {
+					position = length;
+				}
+				mode = value;
+			} else {
+				return null;
+			}
+		}
+		return Arrays.copyOf(word, length);
+	}
+}
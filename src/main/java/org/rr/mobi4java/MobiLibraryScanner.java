@@ -0,0 +1,418 @@
+package org.rr.mobi4java;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * Reads the meta data of all mobi documents (<code>.mobi</code>, <code>.azw</code> and <code>.prc</code> files) in a directory tree. Only
+ * the mobi header and the EXTH records of each file are read with {@link MobiReader#readMetaData(Path)}.
+ *
+ * The files are read in parallel but never more than {@link #getParallelism()} files at once. The directory walk waits for a free slot
+ * before a file is read, so a slow consumer of the results slows down the scan instead of queuing up the meta data of the whole library.
+ * A file which could not be read is reported with its error and does not abort the scan. An {@link Error} while reading a file is
+ * reported wrapped into an {@link ExecutionException}.
+ */
+public class MobiLibraryScanner {
+
+	private static final String[] EXTENSIONS = new String[] { ".mobi", ".azw", ".prc" };
+
+	/** Marks the end of the results in the queue of a {@link ResultIterator}. */
+	private static final Result END = new Result(null, null, null);
+
+	private final MobiReader reader = new MobiReader();
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	private ExecutorService executor;
+
+	/**
+	 * Receives the result of each scanned file.
+	 */
+	public interface Callback {
+
+		/**
+		 * Invoked for each scanned file as soon as it has been read. The invocations are not concurrent but could happen from different
+		 * threads.
+		 *
+		 * @param result The meta data or the error of the file.
+		 */
+		void scanned(Result result);
+	}
+
+	/**
+	 * The meta data or the error of a scanned file.
+	 */
+	public static class Result {
+
+		private final Path path;
+
+		private final MobiMetaData metaData;
+
+		private final Exception error;
+
+		Result(Path path, MobiMetaData metaData, Exception error) {
+			this.path = path;
+			this.metaData = metaData;
+			this.error = error;
+		}
+
+		/**
+		 * @return The scanned file.
+		 */
+		public Path getPath() {
+			return path;
+		}
+
+		/**
+		 * @return The meta data of the file or <code>null</code> if the file could not be read.
+		 */
+		public MobiMetaData getMetaData() {
+			return metaData;
+		}
+
+		/**
+		 * @return The error which occurred while reading the file or <code>null</code> if the meta data was read.
+		 */
+		public Exception getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringBuilder(this)
+					.append("path", path)
+					.append("metaData", metaData)
+					.append("error", error)
+			.toString();
+		}
+	}
+
+	/**
+	 * An {@link Iterator} over the results of a scan which is running in the background. The scan is stopped if the iterator is closed
+	 * before all results are taken.
+	 *
+	 * The scan waits while the iterator holds {@link #getParallelism()} results which are not taken yet. An iterator which is not read to
+	 * its end must be closed, otherwise the walker thread and the threads which are reading the files wait forever.
+	 */
+	public class ResultIterator implements Iterator<Result>, Closeable {
+
+		private final BlockingQueue<Result> queue = new ArrayBlockingQueue<>(parallelism + 1);
+
+		private final AtomicBoolean cancelled = new AtomicBoolean();
+
+		/** The thread which is waiting in {@link #put(Result)} or <code>null</code>. Guarded by the iterator. */
+		private Thread putter;
+
+		private Result next;
+
+		private ResultIterator() {
+		}
+
+		/**
+		 * Waits until the next result is available.
+		 *
+		 * @return <code>false</code> if all files are scanned, the iterator has been closed or the current thread has been interrupted
+		 *         while waiting.
+		 */
+		@Override
+		public boolean hasNext() {
+			if(next == null && !cancelled.get()) {
+				try {
+					next = queue.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					close();
+				}
+			}
+			return next != null && next != END;
+		}
+
+		@Override
+		public Result next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Result result = next;
+			next = null;
+			return result;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Stop the scan. Files which are already read are not reported anymore. A thread which is waiting to queue its result is
+		 * interrupted, so the threads of the scan are ending after the files which are currently read.
+		 */
+		@Override
+		public void close() {
+			synchronized (this) {
+				cancelled.set(true);
+				if(putter != null) {
+					putter.interrupt();
+				}
+			}
+			next = null;
+			queue.clear();
+		}
+
+		/**
+		 * Wait until the result could be queued or the iterator has been closed.
+		 */
+		private void put(Result result) {
+			synchronized (this) {
+				if(cancelled.get()) {
+					return;
+				}
+				putter = Thread.currentThread();
+			}
+			try {
+				queue.put(result);
+			} catch (InterruptedException e) {
+				if(!cancelled.get()) {
+					Thread.currentThread().interrupt();
+				}
+			} finally {
+				synchronized (this) {
+					putter = null;
+					if(cancelled.get()) {
+						// clear the interrupt of close() which could come after the result has been queued.
+						Thread.interrupted();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Scan the given directory tree and wait until all files are read.
+	 *
+	 * @param directory The root of the directory tree to scan.
+	 * @param callback Receives the result of each scanned file.
+	 * @throws IOException if the directory walk failed.
+	 * @throws InterruptedException if the current thread has been interrupted while waiting for the files to be read.
+	 * @throws RuntimeException which has been thrown by the callback. The scan is stopped after the callback failed.
+	 */
+	public void scan(Path directory, Callback callback) throws IOException, InterruptedException {
+		scan(directory, callback, new AtomicBoolean());
+	}
+
+	/**
+	 * Start a scan of the given directory tree in the background. The results are available from the returned iterator as soon as
+	 * they're read. Reading stops while the iterator holds {@link #getParallelism()} results which are not taken yet.
+	 *
+	 * @param directory The root of the directory tree to scan.
+	 * @return The iterator over the results which must be closed if not all results are taken.
+	 */
+	public ResultIterator iterator(final Path directory) {
+		final ResultIterator iterator = new ResultIterator();
+		Thread walker = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					scan(directory, new Callback() {
+
+						@Override
+						public void scanned(Result result) {
+							iterator.put(result);
+						}
+					}, iterator.cancelled);
+				} catch (IOException | InterruptedException | RuntimeException e) {
+					iterator.put(new Result(directory, null, e));
+				} finally {
+					iterator.put(END);
+				}
+			}
+		}, "mobi-library-scanner-walker");
+		walker.setDaemon(true);
+		walker.start();
+		return iterator;
+	}
+
+	private void scan(Path directory, final Callback callback, final AtomicBoolean cancelled) throws IOException, InterruptedException {
+		final int permits = parallelism;
+		final Semaphore slots = new Semaphore(permits);
+		final RuntimeException[] callbackError = new RuntimeException[1];
+		final ExecutorService scanExecutor = executor != null ? executor : createExecutor(permits);
+		try {
+			Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					return cancelled.get() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(final Path file, BasicFileAttributes attrs) throws IOException {
+					if(!attrs.isRegularFile() || !isMobiFile(file)) {
+						return FileVisitResult.CONTINUE;
+					}
+					try {
+						slots.acquire();
+					} catch (InterruptedException e) {
+						throw new InterruptedIOException("Interrupted while waiting for " + file);
+					}
+					if(cancelled.get()) {
+						slots.release();
+						return FileVisitResult.TERMINATE;
+					}
+					try {
+						scanExecutor.execute(new Runnable() {
+
+							@Override
+							public void run() {
+								try {
+									Result result;
+									try {
+										result = read(file);
+									} catch (Error e) {
+										// each file gets its result, even if reading failed with an error.
+										report(new Result(file, null, new ExecutionException("Failed to read " + file, e)));
+										if(e instanceof VirtualMachineError) {
+											throw e;
+										}
+										return;
+									}
+									report(result);
+								} finally {
+									slots.release();
+								}
+							}
+						});
+					} catch (RejectedExecutionException e) {
+						slots.release();
+						throw e;
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					report(new Result(file, null, e));
+					return cancelled.get() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+				}
+
+				private void report(Result result) {
+					synchronized (callbackError) {
+						if(cancelled.get()) {
+							return;
+						}
+						try {
+							callback.scanned(result);
+						} catch (RuntimeException e) {
+							callbackError[0] = e;
+							cancelled.set(true);
+						}
+					}
+				}
+			});
+		} catch (InterruptedIOException e) {
+			throw new InterruptedException(e.getMessage());
+		} finally {
+			// wait until all files are read.
+			slots.acquireUninterruptibly(permits);
+			if(scanExecutor != executor) {
+				scanExecutor.shutdown();
+			}
+		}
+		synchronized (callbackError) {
+			if(callbackError[0] != null) {
+				throw callbackError[0];
+			}
+		}
+	}
+
+	private Result read(Path file) {
+		try {
+			return new Result(file, reader.readMetaData(file), null);
+		} catch (IOException | RuntimeException e) {
+			// broken files are failing with all kinds of runtime exceptions while parsing the header.
+			return new Result(file, null, e);
+		}
+	}
+
+	private static boolean isMobiFile(Path file) {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		for (String extension : EXTENSIONS) {
+			if(name.endsWith(extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static ExecutorService createExecutor(int threads) {
+		return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "mobi-library-scanner");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Get the maximum number of files which are read at once.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Set the maximum number of files which are read at once. The default is the number of available processors.
+	 *
+	 * @param parallelism The number of files which are read at once.
+	 * @throws IllegalArgumentException if the given number is less than one.
+	 */
+	public void setParallelism(int parallelism) {
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("Invalid parallelism " + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Get the executor which reads the files.
+	 *
+	 * @return The executor set with {@link #setExecutor(ExecutorService)} or <code>null</code> if each scan uses its own thread pool.
+	 */
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Set the executor which reads the files. The executor is not shut down by this {@link MobiLibraryScanner}. Not more than
+	 * {@link #getParallelism()} files are read at once, even if the executor has more threads.
+	 *
+	 * @param executor The executor to be used or <code>null</code> to create a thread pool with {@link #getParallelism()} threads for each
+	 *          scan.
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+}
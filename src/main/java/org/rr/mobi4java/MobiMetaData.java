@@ -1,7 +1,6 @@
 package org.rr.mobi4java;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import org.rr.mobi4java.EXTHRecord.RECORD_TYPE;
@@ -20,6 +19,28 @@ public class MobiMetaData {
 		this.mobiHeader = mobiHeader;
 	}
 	
+	/**
+	 * Get the name of the mobi document. This is usually the book's title.
+	 * 
+	 * @return The name of the document. Never returns <code>null</code>.
+	 */
+	public String getFullName() {
+		return mobiHeader.getFullName();
+	}
+	
+	/**
+	 * Get the offset of the cover record relative to the first image record of the mobi document.
+	 * 
+	 * @return The cover offset or <code>-1</code> if the mobi header have no cover offset record defined.
+	 */
+	public int getCoverOffset() {
+		List<EXTHRecord> records = mobiHeader.getEXTHRecords(RECORD_TYPE.COVER_OFFSET);
+		if(!records.isEmpty()) {
+			return records.get(0).getIntData();
+		}
+		return -1;
+	}
+	
 	/**
 	 * Remove a record instance which is a member of the meta data of the mobi document.
 	 * 
@@ -28,7 +49,7 @@ public class MobiMetaData {
 	 * @return <code>true</code> if the given element has been removed.
 	 */
 	public boolean removeEXTHRecord(EXTHRecord record ) {
-		return mobiHeader.getEXTHRecords().remove(record);
+		return mobiHeader.removeEXTHRecord(record);
 	}
 	
 	/**
@@ -39,7 +60,7 @@ public class MobiMetaData {
 	 */
 	public void removeEXTHRecords(EXTHRecord ... records) {
 		for (EXTHRecord record : records) {
-			mobiHeader.getEXTHRecords().remove(record);			
+			mobiHeader.removeEXTHRecord(record);
 		}
 	}
 
@@ -47,7 +68,7 @@ public class MobiMetaData {
 	 * Remove all records from the meta data of the mobi document.
 	 */
 	public void removeAllEXTHRecords() {
-		mobiHeader.getEXTHRecords().clear();
+		mobiHeader.removeAllEXTHRecords();
 	}
 	
 	/**
@@ -60,7 +81,7 @@ public class MobiMetaData {
 		if(record == null) {
 			throw new IllegalArgumentException("Adding null records is not allowed.");
 		}
-		mobiHeader.getEXTHRecords().add(record);
+		mobiHeader.addEXTHRecord(record);
 	}
 	
 	/**
@@ -81,7 +102,7 @@ public class MobiMetaData {
 	 *         and {@link #removeEXTHRecord(EXTHRecord)} to add or remove meta data.
 	 */
 	public List<EXTHRecord> getEXTHRecords() {
-		return Collections.unmodifiableList(mobiHeader.getEXTHRecords());
+		return mobiHeader.getEXTHRecords();
 	}
 	
 	/**
@@ -92,7 +113,7 @@ public class MobiMetaData {
 	 * @see #getEXTHRecords()
 	 */
 	public LanguageRecordDelegate getLanguageRecord() {
-		List<EXTHRecord> records = MobiUtils.findRecordsByType(getEXTHRecords(), RECORD_TYPE.LANGUAGE);
+		List<EXTHRecord> records = mobiHeader.getEXTHRecords(RECORD_TYPE.LANGUAGE);
 		if(!records.isEmpty()) {
 			return new LanguageRecordDelegate(records.get(0));
 		}
@@ -108,7 +129,7 @@ public class MobiMetaData {
 	 * @see #getEXTHRecords()
 	 */
 	public List<StringRecordDelegate> getSubjectRecords() {
-		return MobiUtils.createStringRecords(getEXTHRecords(), RECORD_TYPE.SUBJECT);
+		return MobiUtils.createStringRecords(mobiHeader.getEXTHRecords(RECORD_TYPE.SUBJECT));
 	}
 	
 	/**
@@ -120,7 +141,7 @@ public class MobiMetaData {
 	 * @see #getEXTHRecords()
 	 */
 	public List<StringRecordDelegate> getAuthorRecords() {
-		return MobiUtils.createStringRecords(getEXTHRecords(), RECORD_TYPE.AUTHOR);
+		return MobiUtils.createStringRecords(mobiHeader.getEXTHRecords(RECORD_TYPE.AUTHOR));
 	}
 	
 	/**
@@ -132,7 +153,7 @@ public class MobiMetaData {
 	 * @see #getEXTHRecords()
 	 */
 	public List<StringRecordDelegate> getPublisherRecords() {
-		return MobiUtils.createStringRecords(getEXTHRecords(), RECORD_TYPE.PUBLISHER);
+		return MobiUtils.createStringRecords(mobiHeader.getEXTHRecords(RECORD_TYPE.PUBLISHER));
 	}
 	
 	/**
@@ -144,7 +165,7 @@ public class MobiMetaData {
 	 * @see #getEXTHRecords()
 	 */
 	public List<DateRecordDelegate> getPublishingDateRecords() {
-		return MobiUtils.createDateRecords(getEXTHRecords(), RECORD_TYPE.PUBLISHING_DATE);
+		return MobiUtils.createDateRecords(mobiHeader.getEXTHRecords(RECORD_TYPE.PUBLISHING_DATE));
 	}
 	
 	/**
@@ -156,7 +177,7 @@ public class MobiMetaData {
 	 * @see #getEXTHRecords()
 	 */
 	public List<StringRecordDelegate> getReviewRecords() {
-		return MobiUtils.createStringRecords(getEXTHRecords(), RECORD_TYPE.REVIEW);
+		return MobiUtils.createStringRecords(mobiHeader.getEXTHRecords(RECORD_TYPE.REVIEW));
 	}
 
 	/**
@@ -168,7 +189,7 @@ public class MobiMetaData {
 	 * @see #getEXTHRecords()
 	 */
 	public List<StringRecordDelegate> getContributorRecords() {
-		return MobiUtils.createStringRecords(getEXTHRecords(), RECORD_TYPE.CONTRIBUTOR);
+		return MobiUtils.createStringRecords(mobiHeader.getEXTHRecords(RECORD_TYPE.CONTRIBUTOR));
 	}
 	
 	/**
@@ -180,7 +201,7 @@ public class MobiMetaData {
 	 * @see #getEXTHRecords()
 	 */
 	public List<StringRecordDelegate> getRightsRecords() {
-		return MobiUtils.createStringRecords(getEXTHRecords(), RECORD_TYPE.RIGHTS);
+		return MobiUtils.createStringRecords(mobiHeader.getEXTHRecords(RECORD_TYPE.RIGHTS));
 	}
 	
 	/**
@@ -192,7 +213,7 @@ public class MobiMetaData {
 	 * @see #getEXTHRecords()
 	 */
 	public List<StringRecordDelegate> getSourceRecords() {
-		return MobiUtils.createStringRecords(getEXTHRecords(), RECORD_TYPE.SOURCE);
+		return MobiUtils.createStringRecords(mobiHeader.getEXTHRecords(RECORD_TYPE.SOURCE));
 	}
 	
 	/**
@@ -204,7 +225,7 @@ public class MobiMetaData {
 	 * @see #getEXTHRecords()
 	 */
 	public List<StringRecordDelegate> getImprintRecords() {
-		return MobiUtils.createStringRecords(getEXTHRecords(), RECORD_TYPE.IMPRINT);
+		return MobiUtils.createStringRecords(mobiHeader.getEXTHRecords(RECORD_TYPE.IMPRINT));
 	}
 	
 	/**
@@ -216,7 +237,7 @@ public class MobiMetaData {
 	 * @see #getEXTHRecords()
 	 */
 	public List<StringRecordDelegate> getDescriptionRecords() {
-		return MobiUtils.createStringRecords(getEXTHRecords(), RECORD_TYPE.DESCRIPTION);
+		return MobiUtils.createStringRecords(mobiHeader.getEXTHRecords(RECORD_TYPE.DESCRIPTION));
 	}
 	
 	/**
@@ -228,7 +249,7 @@ public class MobiMetaData {
 	 * @see #getEXTHRecords()
 	 */
 	public List<ISBNRecordDelegate> getISBNRecords() {
-		List<EXTHRecord> records = MobiUtils.findRecordsByType(getEXTHRecords(), RECORD_TYPE.ISBN);
+		List<EXTHRecord> records = mobiHeader.getEXTHRecords(RECORD_TYPE.ISBN);
 		List<ISBNRecordDelegate> recordDelegates = new ArrayList<>(records.size());
 		for (EXTHRecord record : records) {
 			recordDelegates.add(new ISBNRecordDelegate(record));
@@ -245,7 +266,7 @@ public class MobiMetaData {
 	 * @see #getEXTHRecords()
 	 */
 	public List<ASINRecordDelegate> getASINRecords() {
-		List<EXTHRecord> records = MobiUtils.findRecordsByType(getEXTHRecords(), RECORD_TYPE.ASIN);
+		List<EXTHRecord> records = mobiHeader.getEXTHRecords(RECORD_TYPE.ASIN);
 		List<ASINRecordDelegate> recordDelegates = new ArrayList<>(records.size());
 		for (EXTHRecord record : records) {
 			recordDelegates.add(new ASINRecordDelegate(record));
@@ -0,0 +1,483 @@
+package org.rr.mobi4java;
+
+import static org.rr.mobi4java.ByteUtils.writeInt;
+import static org.rr.mobi4java.ByteUtils.writeString;
+import static org.rr.mobi4java.ByteUtils.writeVarLen;
+import static org.rr.mobi4java.ByteUtils.writeZeros;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.rr.mobi4java.MobiContent.CONTENT_TYPE;
+
+/**
+ * Creates the records of a flat NCX index: the main INDX record with the TAGX, the INDX data records with the entries and the CNCX records
+ * with the entry labels. Each entry gets the tags POS, LEN, NAME_OFFSET and DEPTH_LEVEL.
+ */
+class MobiNcxIndexBuilder {
+
+	/** Max size of an index data or CNCX record. The entries and the labels are addressed with 16 bit offsets. */
+	private static final int MAX_RECORD_SIZE = 0xfc00;
+
+	/** Max length of an encoded label, so the label and its length fit into a CNCX record. */
+	private static final int MAX_LABEL_LENGTH = MAX_RECORD_SIZE - 8;
+
+	private static final int HEADER_LENGTH = 192;
+
+	/** The TAGX which is also written by kindlegen, the PARENT and CHILD tags are not used for a flat index. */
+	private static final byte[] TAGX = new byte[] { 'T', 'A', 'G', 'X', 0, 0, 0, 44, 0, 0, 0, 1,
+		1, 1, 0x01, 0, // POS
+		2, 1, 0x02, 0, // LEN
+		3, 1, 0x04, 0, // NAME_OFFSET
+		4, 1, 0x08, 0, // DEPTH_LEVEL
+		21, 1, 0x10, 0, // PARENT
+		22, 1, 0x20, 0, // CHILD_1
+		23, 1, 0x40, 0, // CHILD_N
+		0, 0, 0, 1 };
+
+	/** The control byte of the entries for the tags POS, LEN, NAME_OFFSET and DEPTH_LEVEL. */
+	private static final int CONTROL_BYTE = 0x0f;
+
+	private static final String PAGEBREAK_TAG = "<mbp:pagebreak";
+
+	private static final String FILEPOS_ATTRIBUTE = "filepos=";
+
+	/** The names of the latin-1 entities for the characters starting at <code>0xa0</code>. */
+	private static final String[] LATIN_1_ENTITIES = new String[] { "nbsp", "iexcl", "cent", "pound", "curren", "yen", "brvbar", "sect",
+		"uml", "copy", "ordf", "laquo", "not", "shy", "reg", "macr", "deg", "plusmn", "sup2", "sup3", "acute", "micro", "para", "middot",
+		"cedil", "sup1", "ordm", "raquo", "frac14", "frac12", "frac34", "iquest", "Agrave", "Aacute", "Acirc", "Atilde", "Auml", "Aring",
+		"AElig", "Ccedil", "Egrave", "Eacute", "Ecirc", "Euml", "Igrave", "Iacute", "Icirc", "Iuml", "ETH", "Ntilde", "Ograve", "Oacute",
+		"Ocirc", "Otilde", "Ouml", "times", "Oslash", "Ugrave", "Uacute", "Ucirc", "Uuml", "Yacute", "THORN", "szlig", "agrave", "aacute",
+		"acirc", "atilde", "auml", "aring", "aelig", "ccedil", "egrave", "eacute", "ecirc", "euml", "igrave", "iacute", "icirc", "iuml",
+		"eth", "ntilde", "ograve", "oacute", "ocirc", "otilde", "ouml", "divide", "oslash", "ugrave", "uacute", "ucirc", "uuml", "yacute",
+		"thorn", "yuml" };
+
+	/** The other entities which are decoded in the labels with their characters. */
+	private static final String[] ENTITY_NAMES = new String[] { "quot", "amp", "apos", "lt", "gt", "OElig", "oelig", "Scaron", "scaron",
+		"Yuml", "ndash", "mdash", "lsquo", "rsquo", "sbquo", "ldquo", "rdquo", "bdquo", "dagger", "Dagger", "bull", "hellip", "permil",
+		"lsaquo", "rsaquo", "euro", "trade" };
+
+	private static final String ENTITY_CHARACTERS = "\"&'<>\u0152\u0153\u0160\u0161\u0178\u2013\u2014\u2018\u2019\u201A\u201C\u201D\u201E"
+			+ "\u2020\u2021\u2022\u2026\u2030\u2039\u203A\u20AC\u2122";
+
+	/** The longest entity name or numeric character reference which is decoded. */
+	private static final int MAX_ENTITY_LENGTH = 8;
+
+	private static final Map<String, Character> ENTITIES = new HashMap<>();
+
+	static {
+		for (int i = 0; i < LATIN_1_ENTITIES.length; i++) {
+			ENTITIES.put(LATIN_1_ENTITIES[i], (char) (0xa0 + i));
+		}
+		for (int i = 0; i < ENTITY_NAMES.length; i++) {
+			ENTITIES.put(ENTITY_NAMES[i], ENTITY_CHARACTERS.charAt(i));
+		}
+	}
+
+	private final String encoding;
+
+	private final int textEncoding;
+
+	private int[] positions = new int[16];
+
+	private List<String> labels = new ArrayList<>();
+
+	/**
+	 * @param encoding The character encoding of the text.
+	 * @param textEncoding The encoding code which is written to the index header.
+	 */
+	MobiNcxIndexBuilder(String encoding, int textEncoding) {
+		this.encoding = encoding;
+		this.textEncoding = textEncoding;
+	}
+
+	/**
+	 * Add an entry. The entries must be added in the order of their positions.
+	 *
+	 * @param position The offset of the entry in the text.
+	 * @param label The label of the entry.
+	 */
+	void addEntry(int position, String label) {
+		int count = labels.size();
+		if(count > 0 && position < positions[count - 1]) {
+			throw new IllegalArgumentException("Entry position " + position + " is before the previous entry");
+		}
+		if(count == positions.length) {
+			positions = Arrays.copyOf(positions, count * 2);
+		}
+		positions[count] = position;
+		labels.add(label);
+	}
+
+	/**
+	 * @return The number of entries.
+	 */
+	int size() {
+		return labels.size();
+	}
+
+	/**
+	 * Add an entry for each chapter of the given text. A heading starts a chapter if it is the first heading after a
+	 * <code>&lt;mbp:pagebreak&gt;</code> or if a <code>filepos</code> link points into this heading or the text between the previous
+	 * heading and this one. The text of the heading is used as label. The tags and links are collected in a single pass over the text
+	 * without decoding it.
+	 *
+	 * @param text The encoded text.
+	 */
+	void addChapters(byte[] text) {
+		if(encoding == null || encoding.startsWith("UTF-16")) {
+			// the tags could only be found in ascii compatible encodings.
+			return;
+		}
+		// start, label start, label end and pagebreak flag of each heading.
+		int[] headings = new int[64];
+		int headingCount = 0;
+		int[] targets = new int[64];
+		int targetCount = 0;
+		boolean pagebreak = false;
+		for (int i = 0; i < text.length; i++) {
+			if(text[i] == '<') {
+				if(regionMatches(text, i, PAGEBREAK_TAG)) {
+					pagebreak = true;
+					i += PAGEBREAK_TAG.length() - 1;
+				} else if(isHeadingTag(text, i)) {
+					int labelStart = indexOf(text, '>', i);
+					int labelEnd = labelStart >= 0 ? indexOf(text, "</h", labelStart) : -1;
+					if(labelEnd < 0) {
+						break;
+					}
+					if(headingCount * 4 == headings.length) {
+						headings = Arrays.copyOf(headings, headings.length * 2);
+					}
+					headings[headingCount * 4] = i;
+					headings[headingCount * 4 + 1] = labelStart + 1;
+					headings[headingCount * 4 + 2] = labelEnd;
+					headings[headingCount * 4 + 3] = pagebreak ? 1 : 0;
+					headingCount++;
+					pagebreak = false;
+					i = labelStart;
+				}
+			} else if((text[i] | 0x20) == 'f' && regionMatches(text, i, FILEPOS_ATTRIBUTE)) {
+				int target = readFilepos(text, i + FILEPOS_ATTRIBUTE.length());
+				if(target >= 0) {
+					if(targetCount == targets.length) {
+						targets = Arrays.copyOf(targets, targetCount * 2);
+					}
+					targets[targetCount++] = target;
+				}
+				i += FILEPOS_ATTRIBUTE.length() - 1;
+			}
+		}
+
+		Arrays.sort(targets, 0, targetCount);
+		int previousHeadingEnd = 0;
+		for (int i = 0; i < headingCount; i++) {
+			int position = headings[i * 4];
+			int target = Arrays.binarySearch(targets, 0, targetCount, previousHeadingEnd);
+			target = target < 0 ? -target - 1 : target;
+			boolean linked = target < targetCount && targets[target] < headings[i * 4 + 2];
+			previousHeadingEnd = headings[i * 4 + 2];
+			if(headings[i * 4 + 3] == 1 || linked) {
+				String label = getLabel(text, headings[i * 4 + 1], headings[i * 4 + 2]);
+				if(!label.isEmpty()) {
+					addEntry(position, label);
+				} else if(i + 1 < headingCount) {
+					// the next heading gets the pagebreak of the empty one.
+					headings[i * 4 + 7] |= headings[i * 4 + 3];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Create the index records.
+	 *
+	 * @param textLength The length of the encoded text which is the end of the last entry.
+	 * @return The main INDX record followed by the INDX data records and the CNCX records. The list is empty if there are no entries.
+	 * @throws IOException
+	 */
+	List<MobiContent> build(int textLength) throws IOException {
+		int count = labels.size();
+		if(count == 0) {
+			return Collections.emptyList();
+		}
+
+		List<byte[]> cncxRecords = new ArrayList<>();
+		int[] nameOffsets = new int[count];
+		ByteArrayOutputStream cncx = new ByteArrayOutputStream();
+		for (int i = 0; i < count; i++) {
+			byte[] label = encodeLabel(labels.get(i));
+			ByteArrayOutputStream string = new ByteArrayOutputStream(label.length + 5);
+			writeVarLen(label.length, string);
+			string.write(label);
+			if(cncx.size() + string.size() > MAX_RECORD_SIZE) {
+				cncxRecords.add(pad(cncx));
+				cncx = new ByteArrayOutputStream();
+			}
+			nameOffsets[i] = (cncxRecords.size() << 16) | cncx.size();
+			string.writeTo(cncx);
+		}
+		cncxRecords.add(pad(cncx));
+
+		int keyLength = Math.max(2, Integer.toHexString(count - 1).length());
+		List<byte[]> dataRecords = new ArrayList<>();
+		List<String> lastKeys = new ArrayList<>();
+		List<Integer> entryCounts = new ArrayList<>();
+		ByteArrayOutputStream entries = new ByteArrayOutputStream();
+		List<Integer> entryOffsets = new ArrayList<>();
+		String key = null;
+		for (int i = 0; i < count; i++) {
+			ByteArrayOutputStream entry = new ByteArrayOutputStream();
+			String entryKey = StringUtils.leftPad(Integer.toHexString(i).toUpperCase(), keyLength, '0');
+			writeInt(keyLength, 1, entry);
+			writeString(entryKey, keyLength, entry);
+			writeInt(CONTROL_BYTE, 1, entry);
+			writeVarLen(positions[i], entry);
+			writeVarLen((i + 1 < count ? positions[i + 1] : Math.max(textLength, positions[i])) - positions[i], entry);
+			writeVarLen(nameOffsets[i], entry);
+			writeVarLen(0, entry);
+
+			int idxtSize = 4 + (entryOffsets.size() + 1) * 2;
+			if(!entryOffsets.isEmpty() && HEADER_LENGTH + entries.size() + entry.size() + 3 + idxtSize > MAX_RECORD_SIZE) {
+				dataRecords.add(createDataRecord(entries, entryOffsets));
+				lastKeys.add(key);
+				entryCounts.add(entryOffsets.size());
+				entries = new ByteArrayOutputStream();
+				entryOffsets = new ArrayList<>();
+			}
+			entryOffsets.add(HEADER_LENGTH + entries.size());
+			entry.writeTo(entries);
+			key = entryKey;
+		}
+		dataRecords.add(createDataRecord(entries, entryOffsets));
+		lastKeys.add(key);
+		entryCounts.add(entryOffsets.size());
+
+		List<MobiContent> records = new ArrayList<>(1 + dataRecords.size() + cncxRecords.size());
+		records.add(new MobiContentIndex(createMainRecord(lastKeys, entryCounts, cncxRecords.size())));
+		for (byte[] dataRecord : dataRecords) {
+			records.add(new MobiContentIndex(dataRecord));
+		}
+		for (byte[] cncxRecord : cncxRecords) {
+			records.add(new MobiContent(cncxRecord, CONTENT_TYPE.UNKNOWN));
+		}
+		return records;
+	}
+
+	private byte[] createMainRecord(List<String> lastKeys, List<Integer> entryCounts, int cncxRecordCount) throws IOException {
+		ByteArrayOutputStream geometry = new ByteArrayOutputStream();
+		List<Integer> geometryOffsets = new ArrayList<>();
+		for (int i = 0; i < lastKeys.size(); i++) {
+			geometryOffsets.add(HEADER_LENGTH + TAGX.length + geometry.size());
+			writeInt(lastKeys.get(i).length(), 1, geometry);
+			writeString(lastKeys.get(i), lastKeys.get(i).length(), geometry);
+			writeInt(entryCounts.get(i), 2, geometry);
+		}
+		padTo4(geometry, HEADER_LENGTH + TAGX.length);
+		int idxtOffset = HEADER_LENGTH + TAGX.length + geometry.size();
+
+		ByteArrayOutputStream record = new ByteArrayOutputStream();
+		writeString("INDX", 4, record);
+		writeInt(HEADER_LENGTH, 4, record);
+		writeInt(0, 4, record);
+		writeInt(0, 4, record);
+		writeInt(2, 4, record);
+		writeInt(idxtOffset, 4, record);
+		writeInt(lastKeys.size(), 4, record); // data record count
+		writeInt(textEncoding, 4, record);
+		writeInt(-1, 4, record); // language
+		writeInt(labels.size(), 4, record); // total entry count
+		writeZeros(12, record); // ORDT, LIGT
+		writeInt(cncxRecordCount, 4, record);
+		writeZeros(124, record);
+		writeInt(HEADER_LENGTH, 4, record); // TAGX offset
+		writeZeros(8, record);
+		record.write(TAGX);
+		geometry.writeTo(record);
+		writeIdxt(geometryOffsets, record);
+		return record.toByteArray();
+	}
+
+	private static byte[] createDataRecord(ByteArrayOutputStream entries, List<Integer> entryOffsets) throws IOException {
+		padTo4(entries, HEADER_LENGTH);
+		ByteArrayOutputStream record = new ByteArrayOutputStream();
+		writeString("INDX", 4, record);
+		writeInt(HEADER_LENGTH, 4, record);
+		writeInt(0, 4, record);
+		writeInt(1, 4, record);
+		writeInt(0, 4, record);
+		writeInt(HEADER_LENGTH + entries.size(), 4, record); // IDXT offset
+		writeInt(entryOffsets.size(), 4, record);
+		writeInt(-1, 4, record);
+		writeInt(-1, 4, record);
+		writeZeros(HEADER_LENGTH - 36, record);
+		entries.writeTo(record);
+		writeIdxt(entryOffsets, record);
+		return record.toByteArray();
+	}
+
+	private static void writeIdxt(List<Integer> offsets, ByteArrayOutputStream out) throws IOException {
+		writeString("IDXT", 4, out);
+		for (Integer offset : offsets) {
+			writeInt(offset, 2, out);
+		}
+		// the offsets are followed by at least two zero bytes like kindlegen does.
+		writeZeros(2, out);
+		padTo4(out, 0);
+	}
+
+	private static byte[] pad(ByteArrayOutputStream out) throws IOException {
+		padTo4(out, 0);
+		return out.toByteArray();
+	}
+
+	private static void padTo4(ByteArrayOutputStream out, int offset) throws IOException {
+		writeZeros((4 - (offset + out.size()) % 4) % 4, out);
+	}
+
+	/**
+	 * Encode the given label. A label which is longer than {@link #MAX_LABEL_LENGTH} bytes is cut behind the last character which fits.
+	 */
+	private byte[] encodeLabel(String label) {
+		CharsetEncoder encoder = Charset.forName(encoding).newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ByteBuffer out = ByteBuffer.allocate((int) Math.min(MAX_LABEL_LENGTH, (long) Math.ceil(label.length() * encoder.maxBytesPerChar())));
+		// the encoder stops in front of the first character which does not fit into the buffer.
+		encoder.encode(CharBuffer.wrap(label), out, true);
+		encoder.flush(out);
+		return Arrays.copyOf(out.array(), out.position());
+	}
+
+	/**
+	 * Get the label from the given part of the text. Tags are removed and entities are unescaped.
+	 */
+	private String getLabel(byte[] text, int start, int end) {
+		ByteArrayOutputStream label = new ByteArrayOutputStream(end - start);
+		boolean tag = false;
+		for (int i = start; i < end; i++) {
+			if(text[i] == '<') {
+				tag = true;
+			} else if(text[i] == '>') {
+				tag = false;
+			} else if(!tag) {
+				label.write(text[i]);
+			}
+		}
+		String decoded = ByteUtils.getString(label.toByteArray(), encoding);
+		return StringUtils.normalizeSpace(unescapeHtml(decoded).replace('\u00A0', ' '));
+	}
+
+	/**
+	 * Decode the numeric character references and the usual named entities of html. Other entities are kept as they are.
+	 */
+	private static String unescapeHtml(String text) {
+		int ampersand = text.indexOf('&');
+		if(ampersand < 0) {
+			return text;
+		}
+		StringBuilder result = new StringBuilder(text.length());
+		int start = 0;
+		while (ampersand >= 0) {
+			int semicolon = text.indexOf(';', ampersand + 1);
+			if(semicolon < 0) {
+				break;
+			}
+			int codePoint = semicolon - ampersand - 1 <= MAX_ENTITY_LENGTH ? getEntityCodePoint(text.substring(ampersand + 1, semicolon)) : -1;
+			if(codePoint >= 0) {
+				result.append(text, start, ampersand).appendCodePoint(codePoint);
+				start = semicolon + 1;
+			}
+			ampersand = text.indexOf('&', codePoint >= 0 ? start : ampersand + 1);
+		}
+		return result.append(text, start, text.length()).toString();
+	}
+
+	/**
+	 * @param entity The entity between the ampersand and the semicolon.
+	 * @return The code point of the entity or <code>-1</code> if the entity is not known.
+	 */
+	private static int getEntityCodePoint(String entity) {
+		if(entity.length() > 1 && entity.charAt(0) == '#') {
+			boolean hex = (entity.charAt(1) | 0x20) == 'x';
+			String number = entity.substring(hex ? 2 : 1);
+			if(number.isEmpty() || !Character.isLetterOrDigit(number.charAt(0))) {
+				return -1;
+			}
+			try {
+				int codePoint = Integer.parseInt(number, hex ? 16 : 10);
+				return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+		}
+		Character character = ENTITIES.get(entity);
+		return character != null ? character : -1;
+	}
+
+	/**
+	 * Read the number of a <code>filepos</code> attribute which could be quoted.
+	 *
+	 * @return The number or <code>-1</code> if the attribute has no valid number.
+	 */
+	private static int readFilepos(byte[] text, int offset) {
+		if(offset < text.length && (text[offset] == '"' || text[offset] == '\'')) {
+			offset++;
+		}
+		long value = -1;
+		for (int i = offset; i < text.length && text[i] >= '0' && text[i] <= '9' && value <= Integer.MAX_VALUE; i++) {
+			value = Math.max(value, 0) * 10 + (text[i] - '0');
+		}
+		return value <= Integer.MAX_VALUE ? (int) value : -1;
+	}
+
+	private static boolean isHeadingTag(byte[] text, int offset) {
+		if(offset + 3 >= text.length || (text[offset + 1] | 0x20) != 'h' || text[offset + 2] < '1' || text[offset + 2] > '6') {
+			return false;
+		}
+		byte next = text[offset + 3];
+		return next == '>' || next == ' ' || next == '\t' || next == '\r' || next == '\n';
+	}
+
+	private static boolean regionMatches(byte[] text, int offset, String s) {
+		if(offset + s.length() > text.length) {
+			return false;
+		}
+		for (int i = 0; i < s.length(); i++) {
+			if((text[offset + i] | 0x20) != (s.charAt(i) | 0x20)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOf(byte[] text, char c, int offset) {
+		for (int i = offset; i < text.length; i++) {
+			if(text[i] == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int indexOf(byte[] text, String s, int offset) {
+		for (int i = offset; i < text.length; i++) {
+			if(regionMatches(text, i, s)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
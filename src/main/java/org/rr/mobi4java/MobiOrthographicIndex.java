@@ -0,0 +1,197 @@
+package org.rr.mobi4java;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.rr.mobi4java.MobiContentTagEntry.TAG_ENTRY_TYPE;
+
+/**
+ * The orthographic index of a dictionary which maps the headwords to their position in the text. The entries of the index data records
+ * are sorted by their keys, so a headword is searched with a binary search over the last entry of each data record followed by a binary
+ * search over the entries of the matching record. The headword is encoded like the entry keys and compared byte by byte, no strings are
+ * created for the entries.
+ *
+ * Keys are encoded with the ORDT table of the main index record if it has one, otherwise with the character encoding of the index.
+ */
+class MobiOrthographicIndex {
+
+	private final MobiContentTagx tagx;
+
+	private final MobiIndexDataRecords dataRecords;
+
+	private final String encoding;
+
+	/** The position of the {@link TAG_ENTRY_TYPE#POS} tag in the tag values of an entry. */
+	private final int positionTag;
+
+	/** The characters of the entry keys by their byte value or <code>null</code> if the keys are encoded with the index encoding. */
+	private final int[] ordt;
+
+	/** The characters of the ORDT table in ascending order or <code>null</code> if the index has no ORDT table. */
+	private final char[] ordtCharacters;
+
+	/** The key byte for each character in {@link #ordtCharacters}. */
+	private final byte[] ordtBytes;
+
+	/**
+	 * @param index The main index record with the TAGX.
+	 * @param dataRecords The index data records which are following the main index record.
+	 * @throws IOException if the index is not valid.
+	 */
+	MobiOrthographicIndex(MobiContentIndex index, List<MobiContentIndex> dataRecords) throws IOException {
+		this.tagx = index.getTagx();
+		if(tagx == null) {
+			throw new IOException("Index record has no TAGX");
+		}
+		this.dataRecords = new MobiIndexDataRecords(dataRecords);
+		this.encoding = index.getCharacterEncoding();
+		this.positionTag = tagx.getValueTagIndex(TAG_ENTRY_TYPE.POS.getType());
+
+		this.ordt = index.getOrdt();
+		if(ordt != null) {
+			// the key bytes are indices into the ORDT table, so only the first 256 characters can be part of a key.
+			int count = Math.min(ordt.length, 256);
+			long[] sorted = new long[count];
+			for (int i = 0; i < count; i++) {
+				sorted[i] = ((long) ordt[i] << 8) | i;
+			}
+			Arrays.sort(sorted);
+			ordtCharacters = new char[count];
+			ordtBytes = new byte[count];
+			for (int i = 0; i < count; i++) {
+				ordtCharacters[i] = (char) (sorted[i] >>> 8);
+				ordtBytes[i] = (byte) sorted[i];
+			}
+		} else {
+			ordtCharacters = null;
+			ordtBytes = null;
+		}
+	}
+
+	/**
+	 * Search the given headword.
+	 *
+	 * @param headword The headword to search.
+	 * @return The position of the headword in the decompressed text or <code>-1</code> if the headword is not part of the index.
+	 * @throws IOException if the index is not valid.
+	 */
+	int lookup(String headword) throws IOException {
+		byte[] key = encodeKey(headword);
+		if(key == null || positionTag < 0) {
+			return -1;
+		}
+
+		MobiContentIndex dataRecord = findDataRecord(key);
+		if(dataRecord == null) {
+			return -1;
+		}
+		int entry = findEntry(dataRecord, key);
+		if(entry < 0) {
+			return -1;
+		}
+		int[] values = new int[tagx.getValueTagCount()];
+		dataRecord.readEntryValues(entry, tagx, values);
+		return values[positionTag];
+	}
+
+	/**
+	 * @return The number of entries in all data records.
+	 */
+	int getEntryCount() {
+		return dataRecords.getEntryCount();
+	}
+
+	/**
+	 * Get the headword of an entry.
+	 *
+	 * @param entry The entry number counted over all data records.
+	 * @return The decoded key of the entry.
+	 * @throws IOException if the entry is not valid.
+	 */
+	String getHeadword(int entry) throws IOException {
+		byte[] key = dataRecords.getEntryKey(entry);
+		if(ordt == null) {
+			return ByteUtils.getString(key, encoding);
+		}
+		char[] headword = new char[key.length];
+		for (int i = 0; i < key.length; i++) {
+			int index = key[i] & 0xff;
+			if(index >= ordt.length) {
+				throw new IOException("Invalid ORDT index " + index + " in entry " + entry);
+			}
+			headword[i] = (char) ordt[index];
+		}
+		return new String(headword);
+	}
+
+	/**
+	 * Get all values of a tag of an entry.
+	 *
+	 * @param entry The entry number counted over all data records.
+	 * @param tag The tag number.
+	 * @return The values which are empty if the entry has no value for the tag.
+	 * @throws IOException if the entry is not valid.
+	 */
+	int[] getValues(int entry, int tag) throws IOException {
+		return dataRecords.readEntryValues(entry, tagx, tag);
+	}
+
+	/**
+	 * @return The first data record which last entry key is not less than the given key or <code>null</code> if all keys are less than
+	 *         the given key.
+	 */
+	private MobiContentIndex findDataRecord(byte[] key) throws IOException {
+		int low = 0;
+		int high = dataRecords.getRecordCount() - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			MobiContentIndex dataRecord = dataRecords.getRecord(middle);
+			int lastEntry = dataRecord.getIndexCount() - 1;
+			if(lastEntry < 0 || dataRecord.compareEntryKey(lastEntry, key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low < dataRecords.getRecordCount() ? dataRecords.getRecord(low) : null;
+	}
+
+	private static int findEntry(MobiContentIndex dataRecord, byte[] key) throws IOException {
+		int low = 0;
+		int high = dataRecord.getIndexCount() - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = dataRecord.compareEntryKey(middle, key);
+			if(comparison < 0) {
+				low = middle + 1;
+			} else if(comparison > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Encode the given headword like the entry keys are encoded.
+	 *
+	 * @return The encoded key or <code>null</code> if the headword contains characters which could not be part of a key.
+	 */
+	private byte[] encodeKey(String headword) throws UnsupportedEncodingException {
+		if(ordtCharacters == null) {
+			return encoding != null ? headword.getBytes(encoding) : null;
+		}
+		byte[] key = new byte[headword.length()];
+		for (int i = 0; i < key.length; i++) {
+			int index = Arrays.binarySearch(ordtCharacters, headword.charAt(i));
+			if(index < 0) {
+				return null;
+			}
+			key[i] = ordtBytes[index];
+		}
+		return key;
+	}
+}
@@ -8,6 +8,11 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -37,7 +42,76 @@ public class MobiReader {
 	 * @throws IOException
 	 */
 	public MobiDocument read(InputStream in) throws IOException {
-		byte[] mobiData = IOUtils.toByteArray(in);
+		return read(ByteBuffer.wrap(IOUtils.toByteArray(in)));
+	}
+	
+	/**
+	 * Read and parse a mobi document from the file at the given {@link Path}. The file is mapped into memory and the records of the
+	 * document are slices of that mapping, so the record data is not copied to the heap as long as it's not needed. The file must not be
+	 * changed as long as the returned {@link MobiDocument} is in use.
+	 * 
+	 * @param path A {@link Path} which points to a mobi document.
+	 * @return A new {@link MobiDocument} instance. Never returns <code>null</code>.
+	 * @throws IOException
+	 */
+	public MobiDocument read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return read(channel);
+		}
+	}
+	
+	/**
+	 * Read and parse a mobi document from the given {@link FileChannel}. The whole channel is mapped into memory and the records of the
+	 * document are slices of that mapping. The given {@link FileChannel} will not be closed after reading, the mapping stays valid after
+	 * closing it.
+	 * 
+	 * @param channel {@link FileChannel} which provides the mobi data to be parsed.
+	 * @return A new {@link MobiDocument} instance. Never returns <code>null</code>.
+	 * @throws IOException
+	 */
+	public MobiDocument read(FileChannel channel) throws IOException {
+		return read(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+	}
+	
+	/**
+	 * Read only the meta data of the mobi document at the given {@link Path}. Other than {@link #read(Path)}, only the PDB header, the
+	 * PDB record list and the first record containing the mobi header and the EXTH records are read from the file.
+	 * 
+	 * @param path A {@link Path} which points to a mobi document.
+	 * @return A new {@link MobiMetaData} instance. Never returns <code>null</code>.
+	 * @throws IOException
+	 */
+	public MobiMetaData readMetaData(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return readMetaData(channel);
+		}
+	}
+	
+	/**
+	 * Read only the meta data of the mobi document from the given {@link FileChannel} using positional reads. The given
+	 * {@link FileChannel} will not be closed after reading and its position is not changed.
+	 * 
+	 * @param channel {@link FileChannel} which provides the mobi data to be parsed.
+	 * @return A new {@link MobiMetaData} instance. Never returns <code>null</code>.
+	 * @throws IOException if the PDB record list does not point to a first record within the file.
+	 */
+	public MobiMetaData readMetaData(FileChannel channel) throws IOException {
+		PDBHeader pdbHeader = PDBHeader.readHeader(channel);
+		if(!pdbHeader.hasRecord(0)) {
+			throw new IOException("PDB header has no records");
+		}
+		long recordDataOffset = getRecordDataOffset(pdbHeader, 0);
+		long recordDataLength = pdbHeader.hasRecord(1) ? getRecordDataLength(pdbHeader, 0) : channel.size() - recordDataOffset;
+		// the offsets are not trusted, the record must be part of the file before its buffer is allocated.
+		if(recordDataOffset <= 0 || recordDataLength <= 0 || recordDataOffset + recordDataLength > channel.size()) {
+			throw new IOException("Invalid first record at offset " + recordDataOffset + " with length " + recordDataLength + " in "
+					+ channel.size() + " bytes");
+		}
+		ByteBuffer mobiHeaderData = ByteUtils.read(channel, recordDataOffset, (int) recordDataLength);
+		return new MobiMetaData(MobiContentHeader.readMobiHeader(mobiHeaderData, 0, recordDataLength));
+	}
+	
+	private MobiDocument read(ByteBuffer mobiData) throws IOException {
 		PDBHeader pdbHeader = readPDBHeader(mobiData);
 		MobiContentHeader mobiHeader = readMobiHeader(pdbHeader, mobiData);
 		List<MobiContent> mobiContent = readMobiContent(pdbHeader, mobiHeader, mobiData);
@@ -57,15 +131,15 @@ public class MobiReader {
 		}
 	}
 
-	private PDBHeader readPDBHeader(byte[] mobiData) {
+	private PDBHeader readPDBHeader(ByteBuffer mobiData) {
 		return PDBHeader.readHeader(mobiData);
 	}
 
-	private MobiContentHeader readMobiHeader(PDBHeader pdbHeader, byte[] mobiData) throws IOException {
+	private MobiContentHeader readMobiHeader(PDBHeader pdbHeader, ByteBuffer mobiData) throws IOException {
 		return MobiContentHeader.readMobiHeader(mobiData, getRecordDataOffset(pdbHeader, 0), getRecordDataLength(pdbHeader, 0));
 	}
 
-	private List<MobiContent> readMobiContent(PDBHeader pdbHeader, MobiContentHeader mobiHeader, byte[] mobiData) throws IOException {
+	private List<MobiContent> readMobiContent(PDBHeader pdbHeader, MobiContentHeader mobiHeader, ByteBuffer mobiData) throws IOException {
 		List<MobiContent> mobiContents = new ArrayList<>();
 		mobiContents.add(mobiHeader);
 		int recordCount = pdbHeader.getRecordCount();
@@ -75,7 +149,7 @@ public class MobiReader {
 		return mobiContents;
 	}
 
-	private MobiContent createMobiContent(PDBHeader pdbHeader, MobiContentHeader mobiHeader, byte[] mobiData, int index) throws IOException {
+	private MobiContent createMobiContent(PDBHeader pdbHeader, MobiContentHeader mobiHeader, ByteBuffer mobiData, int index) throws IOException {
 		long recordDataOffset = getRecordDataOffset(pdbHeader, index);
 		long recordDataLength = getRecordDataLength(pdbHeader, index);
 		CONTENT_TYPE type = evaluateType(pdbHeader, mobiHeader, index, mobiData, recordDataOffset, recordDataLength);
@@ -0,0 +1,210 @@
+package org.rr.mobi4java;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.rr.mobi4java.MobiContentTagEntry.TAG_ENTRY_TYPE;
+
+/**
+ * The table of contents of a {@link MobiDocument} decoded from the NCX index. The tag values of all index entries are kept in one int
+ * array per tag, so the table holds no objects per entry. Entries are addressed by their number in the index, the parent and child
+ * tags reference other entries by their number.
+ *
+ * Only the first value of each tag is kept. Tags which are not present in an entry have the value <code>-1</code>. The labels of the
+ * entries are decoded from the CNCX records when they're requested.
+ *
+ * @see MobiDocument#getTableOfContents()
+ */
+public class MobiTableOfContents {
+
+	static final MobiTableOfContents EMPTY = new MobiTableOfContents(new int[0], new int[0][], 0, MobiCncx.EMPTY);
+
+	/** The tag numbers of the columns. */
+	private final int[] tags;
+
+	/** One column with the values of all entries for each tag in {@link #tags}. */
+	private final int[][] columns;
+
+	private final int size;
+
+	private final MobiCncx cncx;
+
+	private MobiTableOfContents(int[] tags, int[][] columns, int size, MobiCncx cncx) {
+		this.tags = tags;
+		this.columns = columns;
+		this.size = size;
+		this.cncx = cncx;
+	}
+
+	/**
+	 * Decode the entries of the given NCX index.
+	 *
+	 * @param index The main index record with the TAGX.
+	 * @param dataRecords The index data records which are following the main index record.
+	 * @param cncx The strings of the CNCX records which are following the index data records.
+	 * @throws IOException if the index is not valid.
+	 */
+	static MobiTableOfContents read(MobiContentIndex index, List<MobiContentIndex> dataRecords, MobiCncx cncx) throws IOException {
+		MobiContentTagx tagx = index.getTagx();
+		if(tagx == null) {
+			throw new IOException("Index record has no TAGX");
+		}
+		int[] tagTable = tagx.getTagValuesTable();
+		int[] tags = new int[tagx.getValueTagCount()];
+		for (int i = 0, column = 0; i < tagTable.length; i += 4) {
+			if(tagTable[i + 3] != 1) {
+				tags[column++] = tagTable[i];
+			}
+		}
+
+		int size = 0;
+		for (MobiContentIndex dataRecord : dataRecords) {
+			size += dataRecord.getIndexCount();
+		}
+		int[][] columns = new int[tags.length][size];
+
+		int[] values = new int[tags.length];
+		int entry = 0;
+		for (MobiContentIndex dataRecord : dataRecords) {
+			for (int i = 0; i < dataRecord.getIndexCount(); i++, entry++) {
+				dataRecord.readEntryValues(i, tagx, values);
+				for (int column = 0; column < columns.length; column++) {
+					columns[column][entry] = values[column];
+				}
+			}
+		}
+		return new MobiTableOfContents(tags, columns, size, cncx);
+	}
+
+	/**
+	 * @return The number of entries.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return <code>true</code> if the index has no entries.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Tells if the entries of the index can have a value for the given tag.
+	 */
+	public boolean hasTag(TAG_ENTRY_TYPE tag) {
+		return getColumn(tag.getType()) != null;
+	}
+
+	/**
+	 * Get the value of a tag.
+	 *
+	 * @param entry The entry number.
+	 * @param tag The tag.
+	 * @return The first value of the tag or <code>-1</code> if the entry has no value for the tag.
+	 * @throws IndexOutOfBoundsException if there is no entry with the given number.
+	 */
+	public int getValue(int entry, TAG_ENTRY_TYPE tag) {
+		if(entry < 0 || entry >= size) {
+			throw new IndexOutOfBoundsException("Invalid entry " + entry + " size " + size);
+		}
+		int[] column = getColumn(tag.getType());
+		return column != null ? column[entry] : -1;
+	}
+
+	/**
+	 * @return The offset of the entry in the decompressed text or <code>-1</code>.
+	 */
+	public int getPosition(int entry) {
+		return getValue(entry, TAG_ENTRY_TYPE.POS);
+	}
+
+	/**
+	 * @return The length of the entry in the decompressed text or <code>-1</code>.
+	 */
+	public int getLength(int entry) {
+		return getValue(entry, TAG_ENTRY_TYPE.LEN);
+	}
+
+	/**
+	 * @return The offset of the entry label in the CNCX records or <code>-1</code>.
+	 */
+	public int getNameOffset(int entry) {
+		return getValue(entry, TAG_ENTRY_TYPE.NAME_OFFSET);
+	}
+
+	/**
+	 * @return The depth of the entry, starting with 0 for the top level entries, or <code>-1</code>.
+	 */
+	public int getDepth(int entry) {
+		return getValue(entry, TAG_ENTRY_TYPE.DEPTH_LEVEL);
+	}
+
+	/**
+	 * @return The number of the parent entry or <code>-1</code>.
+	 */
+	public int getParent(int entry) {
+		return getValue(entry, TAG_ENTRY_TYPE.PARENT);
+	}
+
+	/**
+	 * @return The number of the first child entry or <code>-1</code>.
+	 */
+	public int getFirstChild(int entry) {
+		return getValue(entry, TAG_ENTRY_TYPE.CHILD_1);
+	}
+
+	/**
+	 * @return The number of the last child entry or <code>-1</code>.
+	 */
+	public int getLastChild(int entry) {
+		return getValue(entry, TAG_ENTRY_TYPE.CHILD_N);
+	}
+
+	/**
+	 * @return The label of the entry or <code>null</code>.
+	 */
+	public String getName(int entry) {
+		return cncx.getString(getNameOffset(entry));
+	}
+
+	/**
+	 * @return The description of the entry or <code>null</code>.
+	 */
+	public String getDescription(int entry) {
+		return cncx.getString(getValue(entry, TAG_ENTRY_TYPE.DESC_OFFSET));
+	}
+
+	/**
+	 * @return The author of the entry or <code>null</code>.
+	 */
+	public String getAuthor(int entry) {
+		return cncx.getString(getValue(entry, TAG_ENTRY_TYPE.AUTHOR_OFFSET));
+	}
+
+	/**
+	 * @return The strings of the CNCX records which are referenced by the entries.
+	 */
+	public MobiCncx getCncx() {
+		return cncx;
+	}
+
+	private int[] getColumn(int tag) {
+		for (int i = 0; i < tags.length; i++) {
+			if(tags[i] == tag) {
+				return columns[i];
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this)
+				.append("size", size)
+				.append("tags", tags)
+		.toString();
+	}
+}
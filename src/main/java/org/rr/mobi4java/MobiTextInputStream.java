@@ -0,0 +1,109 @@
+package org.rr.mobi4java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Stream over the decompressed text of a {@link MobiDocument}. Only the text record which is currently read is held decompressed in memory,
+ * the next record is decompressed when the current one is exhausted.
+ */
+class MobiTextInputStream extends InputStream {
+	
+	private final MobiDocument document;
+	
+	private final List<MobiContent> textRecords;
+	
+	/** Index of the next text record which must be decompressed. */
+	private int nextRecord;
+	
+	/** The decompressed bytes of the current text record. */
+	private byte[] buffer = new byte[0];
+	
+	/** Buffer the text records are decompressed into, if they're fitting into it. */
+	private byte[] scratch;
+	
+	/** The number of valid bytes in the buffer. */
+	private int length;
+	
+	private int position;
+	
+	/** Number of bytes which could be read from the text records which are not decompressed yet. */
+	private long remaining;
+	
+	private boolean closed;
+	
+	MobiTextInputStream(MobiDocument document, List<MobiContent> textRecords, long textLength, int recordSize) {
+		this.document = document;
+		this.textRecords = textRecords;
+		this.remaining = textLength;
+		this.scratch = new byte[recordSize];
+	}
+
+	@Override
+	public int read() throws IOException {
+		if(!fill()) {
+			return -1;
+		}
+		return buffer[position++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		} else if(len == 0) {
+			return 0;
+		} else if(!fill()) {
+			return -1;
+		}
+		int read = Math.min(len, length - position);
+		System.arraycopy(buffer, position, b, off, read);
+		position += read;
+		return read;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return closed ? 0 : length - position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		buffer = new byte[0];
+		scratch = buffer;
+		length = 0;
+		position = 0;
+	}
+	
+	/**
+	 * Decompress the next text records until there are bytes left to read.
+	 * 
+	 * @return <code>false</code> if the end of the text is reached.
+	 */
+	private boolean fill() throws IOException {
+		if(closed) {
+			throw new IOException("Stream closed");
+		}
+		while(position >= length) {
+			if(nextRecord >= textRecords.size() || remaining <= 0) {
+				return false;
+			}
+			MobiContent textRecord = textRecords.get(nextRecord);
+			int decodedLength = document.decodeTextRecord(nextRecord, textRecord, ByteBuffer.wrap(scratch));
+			if(decodedLength >= 0) {
+				buffer = scratch;
+			} else {
+				buffer = document.getTextRecord(nextRecord, textRecord);
+				decodedLength = buffer.length;
+			}
+			nextRecord++;
+			length = (int) Math.min(decodedLength, remaining);
+			remaining -= length;
+			position = 0;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,62 @@
+package org.rr.mobi4java;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reader which skips the utf replacement character, like {@link MobiUtils#removeUtfReplacementCharacter(String)} does for strings.
+ */
+class MobiTextReader extends FilterReader {
+	
+	private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+
+	MobiTextReader(Reader in) {
+		super(in);
+	}
+
+	@Override
+	public int read() throws IOException {
+		int c;
+		do {
+			c = in.read();
+		} while(c == REPLACEMENT_CHARACTER);
+		return c;
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		int read;
+		do {
+			read = in.read(cbuf, off, len);
+			if(read <= 0) {
+				return read;
+			}
+			int length = off;
+			for (int i = off; i < off + read; i++) {
+				if(cbuf[i] != REPLACEMENT_CHARACTER) {
+					cbuf[length++] = cbuf[i];
+				}
+			}
+			read = length - off;
+		} while(read == 0);
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		if(n < 0) {
+			throw new IllegalArgumentException("skip value is negative");
+		}
+		char[] skipBuffer = new char[(int) Math.min(n, 8192)];
+		long skipped = 0;
+		while(skipped < n) {
+			int read = read(skipBuffer, 0, (int) Math.min(n - skipped, skipBuffer.length));
+			if(read < 0) {
+				break;
+			}
+			skipped += read;
+		}
+		return skipped;
+	}
+}
@@ -0,0 +1,239 @@
+package org.rr.mobi4java;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * Cache for decompressed text records which can be shared by several {@link MobiDocument} instances. The cache is limited by the number of
+ * bytes of the decompressed records it holds and evicts the least recently used records first.
+ * 
+ * The records are cached per document and text record index. A cached record is dropped when the text of its document is changed with
+ * {@link MobiDocument#setTextContent(String)} or when the record is changed with {@link MobiContent#setContent(byte[])}. Changes to the
+ * array returned by {@link MobiContent#getContent()} are not recognized.
+ * 
+ * The documents and their records are only weakly referenced by the cache, so a cached record does not keep its document reachable. The
+ * records of a document which has been garbage collected are removed with the next access to the cache.
+ * 
+ * @see MobiDocument#setTextRecordCache(MobiTextRecordCache)
+ */
+public class MobiTextRecordCache {
+	
+	private final long maxSize;
+	
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	
+	/** Receives the keys of the garbage collected documents. */
+	private final ReferenceQueue<MobiDocument> collectedDocuments = new ReferenceQueue<>();
+	
+	private long size;
+	
+	private long hitCount;
+	
+	private long missCount;
+	
+	private long evictionCount;
+	
+	/**
+	 * @param maxSize The maximum number of decompressed bytes the cache holds.
+	 */
+	public MobiTextRecordCache(long maxSize) {
+		if(maxSize < 0) {
+			throw new IllegalArgumentException("Invalid cache size " + maxSize);
+		}
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * Get the decompressed text record.
+	 * 
+	 * @return The decompressed text record or <code>null</code> if the record is not cached or has been changed since it was cached.
+	 */
+	synchronized byte[] get(MobiDocument document, int index, MobiContent mobiContent) {
+		removeCollected();
+		Key key = new Key(document, index, null);
+		Entry entry = entries.get(key);
+		if(entry != null && (entry.mobiContent.get() != mobiContent || entry.modificationCount != mobiContent.getModificationCount())) {
+			remove(key);
+			entry = null;
+		}
+		if(entry == null) {
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		return entry.decoded;
+	}
+	
+	synchronized void put(MobiDocument document, int index, MobiContent mobiContent, byte[] decoded) {
+		if(decoded.length > maxSize) {
+			return;
+		}
+		removeCollected();
+		Key key = new Key(document, index, collectedDocuments);
+		remove(key);
+		entries.put(key, new Entry(mobiContent, decoded));
+		size += decoded.length;
+		
+		Iterator<Entry> eldest = entries.values().iterator();
+		while(size > maxSize) {
+			size -= eldest.next().decoded.length;
+			eldest.remove();
+			evictionCount++;
+		}
+	}
+	
+	private void remove(Key key) {
+		Entry entry = entries.remove(key);
+		if(entry != null) {
+			size -= entry.decoded.length;
+		}
+	}
+	
+	/**
+	 * Remove the records of all documents which have been garbage collected.
+	 */
+	private void removeCollected() {
+		Reference<? extends MobiDocument> key;
+		while((key = collectedDocuments.poll()) != null) {
+			remove((Key) key);
+		}
+	}
+	
+	/**
+	 * Remove all cached records of the given document.
+	 */
+	public synchronized void invalidate(MobiDocument document) {
+		removeCollected();
+		Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+		while(iterator.hasNext()) {
+			Map.Entry<Key, Entry> entry = iterator.next();
+			if(entry.getKey().get() == document) {
+				size -= entry.getValue().decoded.length;
+				iterator.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Remove all cached records.
+	 */
+	public synchronized void clear() {
+		removeCollected();
+		entries.clear();
+		size = 0;
+	}
+	
+	/**
+	 * @return The maximum number of decompressed bytes the cache holds.
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+	
+	/**
+	 * @return The number of decompressed bytes the cache currently holds.
+	 */
+	public synchronized long getSize() {
+		removeCollected();
+		return size;
+	}
+	
+	/**
+	 * @return The number of records the cache currently holds.
+	 */
+	public synchronized int getRecordCount() {
+		removeCollected();
+		return entries.size();
+	}
+	
+	/**
+	 * @return The number of requested records which were found in the cache.
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+	
+	/**
+	 * @return The number of requested records which had to be decompressed.
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+	
+	/**
+	 * @return The number of records which were removed from the cache to stay within the maximum size.
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+	
+	@Override
+	public synchronized String toString() {
+		return new ToStringBuilder(this)
+				.append("maxSize", maxSize)
+				.append("size", size)
+				.append("recordCount", entries.size())
+				.append("hitCount", hitCount)
+				.append("missCount", missCount)
+				.append("evictionCount", evictionCount)
+				.toString();
+	}
+	
+	/**
+	 * Identifies a text record by the identity of its weakly referenced document and its index. The key of a garbage collected document
+	 * is only equal to itself.
+	 */
+	private static class Key extends WeakReference<MobiDocument> {
+		
+		private final int index;
+		
+		private final int hashCode;
+
+		Key(MobiDocument document, int index, ReferenceQueue<MobiDocument> queue) {
+			super(document, queue);
+			this.index = index;
+			this.hashCode = System.identityHashCode(document) * 31 + index;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj) {
+				return true;
+			}
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			MobiDocument document = get();
+			return document != null && document == other.get() && index == other.index;
+		}
+	}
+	
+	private static class Entry {
+		
+		/** The record the decompressed bytes are belonging to. */
+		private final WeakReference<MobiContent> mobiContent;
+		
+		/** The modification count of the record at the time it was decompressed. */
+		private final int modificationCount;
+		
+		private final byte[] decoded;
+
+		Entry(MobiContent mobiContent, byte[] decoded) {
+			this.mobiContent = new WeakReference<>(mobiContent);
+			this.modificationCount = mobiContent.getModificationCount();
+			this.decoded = decoded;
+		}
+	}
+}
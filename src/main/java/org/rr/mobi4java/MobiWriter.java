@@ -39,17 +39,18 @@ public class MobiWriter {
 	 */
 	public void write(OutputStream out) throws IOException {
 		doc.getPdbHeader().writeHeader(doc.getMobiHeader(), doc.getMobiContents(), out);
-		byte[] written = null; 
+		MobiContent written = null; 
 		for (MobiContent mobiContent : doc.getMobiContents()) {
-			written = mobiContent.writeContent(out);
+			mobiContent.writeContent(out);
+			written = mobiContent;
 		}
 
 		// write EOF if not already done.
 		writeEof(out, written);
 	}
 
-	private void writeEof(OutputStream out, byte[] written) throws IOException {
-		if(!ByteUtils.startsWith(written, MOBI_EOF)) {
+	private void writeEof(OutputStream out, MobiContent written) throws IOException {
+		if(written == null || !ByteUtils.startsWith(written.getContentBuffer(), MOBI_EOF)) {
 			out.write(MOBI_EOF);	
 		}
 	}
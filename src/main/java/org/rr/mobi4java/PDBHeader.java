@@ -2,9 +2,10 @@ package org.rr.mobi4java;
 
 import static org.rr.mobi4java.ByteUtils.*;
 
-
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,6 +19,9 @@ public class PDBHeader {
 	/** The size of a PDB header without any records. */
 	private static final int PDB_HEADER_SIZE = 80;
 	
+	/** The offset of the record count field which is also the size of the PDB header fields in front of the record list. */
+	private static final int PDB_RECORD_COUNT_OFFSET = 76;
+	
 	private String name;
 	private int attributes;
 	private int version;
@@ -36,26 +40,35 @@ public class PDBHeader {
 	
 	private PDBHeader() {}
 
-	static PDBHeader readHeader(byte[] mobiData) {
+	/**
+	 * Read the PDB header and the record list with positional reads. Nothing behind the record list is read from the given
+	 * {@link FileChannel}.
+	 */
+	static PDBHeader readHeader(FileChannel channel) throws IOException {
+		int recordCount = getU16(ByteUtils.read(channel, PDB_RECORD_COUNT_OFFSET, 2), 0);
+		return readHeader(ByteUtils.read(channel, 0, PDB_RECORD_COUNT_OFFSET + 2 + (recordCount * PDB_RECORD_SIZE)));
+	}
+
+	static PDBHeader readHeader(ByteBuffer mobiData) {
 		PDBHeader header = new PDBHeader();
 		header.name = getString(mobiData, 0, 32);
-		header.attributes = getInt(mobiData, 32, 2);
-		header.version = getInt(mobiData, 34, 2);
-		header.creationDate = getLong(mobiData, 36, 4);
-		header.modificationDate = getLong(mobiData, 40, 4);
-		header.lastBackupDate = getLong(mobiData, 44, 4);
-		header.modificationNumber = getLong(mobiData, 48, 4);
-		header.appInfoID = getLong(mobiData, 52, 4);
-		header.sortInfoID = getLong(mobiData, 56, 4);
-		header.type = getLong(mobiData, 60, 4);
-		header.creator = getLong(mobiData, 64, 4);
-		header.uniqueIDSeed = getLong(mobiData, 68, 4);
-		header.nextRecordListID = getLong(mobiData, 72, 4);
-		header.recordCount = getInt(mobiData, 76, 2);
+		header.attributes = getU16(mobiData, 32);
+		header.version = getU16(mobiData, 34);
+		header.creationDate = getU32(mobiData, 36);
+		header.modificationDate = getU32(mobiData, 40);
+		header.lastBackupDate = getU32(mobiData, 44);
+		header.modificationNumber = getU32(mobiData, 48);
+		header.appInfoID = getU32(mobiData, 52);
+		header.sortInfoID = getU32(mobiData, 56);
+		header.type = getU32(mobiData, 60);
+		header.creator = getU32(mobiData, 64);
+		header.uniqueIDSeed = getU32(mobiData, 68);
+		header.nextRecordListID = getU32(mobiData, 72);
+		header.recordCount = getU16(mobiData, PDB_RECORD_COUNT_OFFSET);
 
 		header.records = new ArrayList<PDBRecord>(header.recordCount);
 		for (int i = 0; i < header.recordCount; i++) {
-			header.records.add(new PDBRecord(mobiData, i));
+			header.records.add(PDBRecord.readRecord(mobiData, i));
 		}
 
 		return header;
@@ -75,13 +88,13 @@ public class PDBHeader {
 		writeLong(creator, 4, out);
 		writeLong(uniqueIDSeed, 4, out);
 		writeLong(nextRecordListID, 4, out);
-		write(getBytes(mobiContents.size(), new byte[2]), 2, out); // recordCount
+		writeInt(mobiContents.size(), 2, out); // recordCount
 		
 		for (PDBRecord record : createPDBRecords(mobiHeader, mobiContents)) {
 			record.writeRecord(out);
 		}
 		
-		write(new byte[2], 2, out);
+		writeZeros(2, out);
 	}
 	
 	private List<PDBRecord> createPDBRecords(MobiContentHeader mobiHeader, List<MobiContent> mobiContents) {
@@ -102,8 +115,7 @@ public class PDBHeader {
 	}
 	
 	private PDBRecord createPDBRecord(int recordOffset, int uniqueId) {
-		return new PDBRecord(getBytes(recordOffset, new byte[4]), new byte[]{0}, 
-				getBytes(uniqueId, new byte[3]));
+		return new PDBRecord(recordOffset, (byte) 0, uniqueId);
 	}
 	
 	public List<PDBRecord> getRecords() {
@@ -4,6 +4,7 @@ import static org.rr.mobi4java.ByteUtils.*;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
@@ -13,30 +14,28 @@ public class PDBRecord {
 
 	private static final int PDB_RECORD_LENGTH = 8;
 
-	private byte[] recordDataOffset;
-	private byte[] recordAttributes;
-	private byte[] uniqueID;
+	private long recordDataOffset;
+	private byte recordAttributes;
+	private int uniqueID;
 	
-	PDBRecord(byte[] recordDataOffset, byte[] recordAttributes, byte[] uniqueID) {
+	PDBRecord(long recordDataOffset, byte recordAttributes, int uniqueID) {
 		this.recordDataOffset = recordDataOffset;
 		this.recordAttributes = recordAttributes;
 		this.uniqueID = uniqueID;
 	}
 	
-	PDBRecord(byte[] mobiData, int index) {
-		byte[] content = getBytes(mobiData, getPDBRecordOffset(index), 8);
-		recordDataOffset = getBytes(content, 0, 4);
-		recordAttributes = getBytes(content, 4, 1);
-		uniqueID = getBytes(content, 5, 3);
+	static PDBRecord readRecord(ByteBuffer mobiData, int index) {
+		int offset = getPDBRecordOffset(index);
+		return new PDBRecord(getU32(mobiData, offset), mobiData.get(offset + 4), getU24(mobiData, offset + 5));
 	}
 
 	public void writeRecord(OutputStream out) throws IOException {
-		write(recordDataOffset, 4, out);
-		write(recordAttributes, 1, out);
-		write(uniqueID, 3, out);
+		writeLong(recordDataOffset, 4, out);
+		out.write(recordAttributes);
+		writeInt(uniqueID, 3, out);
 	}
 
-	int getPDBRecordOffset(int index) {
+	static int getPDBRecordOffset(int index) {
 		return PDB_RECORD_OFFSET + (index * PDB_RECORD_LENGTH);
 	}
 
@@ -45,15 +44,15 @@ public class PDBRecord {
 	}
 
 	public long getRecordDataOffset() {
-		return getLong(recordDataOffset);
+		return recordDataOffset;
 	}
 	
 	public byte getRecordAttributes() {
-		return recordAttributes[0];
+		return recordAttributes;
 	}
 	
 	public int getUniqueID() {
-		return getInt(uniqueID);
+		return uniqueID;
 	}
 
 	@Override
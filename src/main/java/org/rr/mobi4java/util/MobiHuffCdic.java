@@ -0,0 +1,239 @@
+package org.rr.mobi4java.util;
+
+import static org.rr.mobi4java.ByteUtils.getInt32;
+import static org.rr.mobi4java.ByteUtils.getU16;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Decoder for text records which are compressed with the HUFF/CDIC compression. The huffman code tables are read from the HUFF record
+ * and the phrase dictionary is read from the CDIC records which are following the HUFF record.
+ *
+ * Instances keep the decode state between the records of a document and are therefore not thread safe. Dictionary phrases which are
+ * compressed by themselves are expanded with their first use and are kept expanded for all following records.
+ */
+public class MobiHuffCdic {
+
+	private static final byte[] HUFF_MAGIC = new byte[] { 'H', 'U', 'F', 'F', 0, 0, 0, 0x18 };
+
+	private static final byte[] CDIC_MAGIC = new byte[] { 'C', 'D', 'I', 'C', 0, 0, 0, 0x10 };
+
+	/** Code length for each value of the 8 most significant bits of a code. */
+	private final int[] dict1CodeLength = new int[256];
+
+	/** Tells if the code length from {@link #dict1CodeLength} is the final code length. */
+	private final boolean[] dict1Terminal = new boolean[256];
+
+	private final long[] dict1MaxCode = new long[256];
+
+	/** Smallest code for each code length between 1 and 32, left aligned to 32 bit. */
+	private final long[] minCode = new long[33];
+
+	/** Biggest code for each code length between 1 and 32, left aligned to 32 bit. */
+	private final long[] maxCode = new long[33];
+
+	private byte[][] phrases = new byte[0][];
+
+	/** Tells if the phrase with the same index is already expanded. */
+	private boolean[] phraseExpanded = new boolean[0];
+
+	private int phraseCount;
+
+	/** The output buffer which is reused for all records. */
+	private Output output = new Output(4096);
+
+	/**
+	 * Create a new decoder with the code tables of the given HUFF record. Use {@link #addCdic(byte[])} to add the dictionary records.
+	 *
+	 * @param huff The HUFF record.
+	 * @throws IOException if the given record is not a valid HUFF record.
+	 */
+	public MobiHuffCdic(byte[] huff) throws IOException {
+		if (huff.length < 16 || !startsWith(huff, HUFF_MAGIC)) {
+			throw new IOException("Invalid HUFF record");
+		}
+		int dict1Offset = getInt32(huff, 8);
+		int dict2Offset = getInt32(huff, 12);
+		if (dict1Offset < 0 || dict1Offset + 256 * 4 > huff.length || dict2Offset < 0 || dict2Offset + 64 * 4 > huff.length) {
+			throw new IOException("Invalid HUFF table offsets");
+		}
+
+		for (int i = 0; i < 256; i++) {
+			long value = getInt32(huff, dict1Offset + i * 4) & 0xffffffffL;
+			int codeLength = (int) (value & 0x1f);
+			boolean terminal = (value & 0x80) != 0;
+			if (codeLength == 0 || (codeLength <= 8 && !terminal)) {
+				throw new IOException("Invalid HUFF code length " + codeLength + " at " + i);
+			}
+			dict1CodeLength[i] = codeLength;
+			dict1Terminal[i] = terminal;
+			dict1MaxCode[i] = (((value >>> 8) + 1) << (32 - codeLength)) - 1;
+		}
+
+		for (int codeLength = 1; codeLength <= 32; codeLength++) {
+			long min = getInt32(huff, dict2Offset + (codeLength - 1) * 8) & 0xffffffffL;
+			long max = getInt32(huff, dict2Offset + (codeLength - 1) * 8 + 4) & 0xffffffffL;
+			minCode[codeLength] = min << (32 - codeLength);
+			maxCode[codeLength] = ((max + 1) << (32 - codeLength)) - 1;
+		}
+	}
+
+	/**
+	 * Add the phrases of the given CDIC record to the dictionary. The CDIC records must be added in their order.
+	 *
+	 * @param cdic The CDIC record.
+	 * @throws IOException if the given record is not a valid CDIC record.
+	 */
+	public void addCdic(byte[] cdic) throws IOException {
+		if (cdic.length < 16 || !startsWith(cdic, CDIC_MAGIC)) {
+			throw new IOException("Invalid CDIC record");
+		}
+		int totalPhrases = getInt32(cdic, 8);
+		int bits = getInt32(cdic, 12);
+		if (totalPhrases < 0 || bits < 0 || bits > 31) {
+			throw new IOException("Invalid CDIC header");
+		}
+		int count = Math.min(1 << bits, totalPhrases - phraseCount);
+		if (count <= 0) {
+			return;
+		}
+		if (16 + count * 2 > cdic.length) {
+			throw new IOException("Truncated CDIC record");
+		}
+
+		phrases = Arrays.copyOf(phrases, phraseCount + count);
+		phraseExpanded = Arrays.copyOf(phraseExpanded, phraseCount + count);
+		for (int i = 0; i < count; i++) {
+			int offset = 16 + getU16(cdic, 16 + i * 2);
+			if (offset + 2 > cdic.length) {
+				throw new IOException("Invalid CDIC phrase offset " + offset);
+			}
+			int length = getU16(cdic, offset);
+			int phraseLength = length & 0x7fff;
+			if (offset + 2 + phraseLength > cdic.length) {
+				throw new IOException("Invalid CDIC phrase length " + phraseLength);
+			}
+			phrases[phraseCount] = Arrays.copyOfRange(cdic, offset + 2, offset + 2 + phraseLength);
+			phraseExpanded[phraseCount] = (length & 0x8000) != 0;
+			phraseCount++;
+		}
+	}
+
+	/**
+	 * Decode a single text record.
+	 *
+	 * @param data The compressed record without trailing entries.
+	 * @return The decoded record.
+	 * @throws IOException if the data contains codes which are not covered by the code tables or the dictionary.
+	 */
+	public byte[] decode(byte[] data) throws IOException {
+		return decode(data, 0, data.length);
+	}
+
+	/**
+	 * Decode a single text record.
+	 *
+	 * @param data The buffer containing the compressed record.
+	 * @param offset The offset of the compressed record in the given buffer.
+	 * @param length The length of the compressed record without trailing entries.
+	 * @return The decoded record.
+	 * @throws IOException if the data contains codes which are not covered by the code tables or the dictionary.
+	 */
+	public byte[] decode(byte[] data, int offset, int length) throws IOException {
+		output.length = 0;
+		unpack(data, offset, length, output, 0);
+		return Arrays.copyOf(output.buffer, output.length);
+	}
+
+	private void unpack(byte[] data, int offset, int length, Output out, int depth) throws IOException {
+		if (depth > 32) {
+			throw new IOException("HUFF/CDIC phrases are nested too deep");
+		}
+		int end = offset + length;
+		long bitsLeft = length * 8L;
+		int pos = offset;
+		long x = read64(data, pos, end);
+		int n = 32;
+		while (true) {
+			if (n <= 0) {
+				pos += 4;
+				x = read64(data, pos, end);
+				n += 32;
+			}
+			long code = (x >>> n) & 0xffffffffL;
+			int index = (int) (code >>> 24);
+			int codeLength = dict1CodeLength[index];
+			long max = dict1MaxCode[index];
+			if (!dict1Terminal[index]) {
+				while (codeLength < 32 && code < minCode[codeLength]) {
+					codeLength++;
+				}
+				max = maxCode[codeLength];
+			}
+			n -= codeLength;
+			bitsLeft -= codeLength;
+			if (bitsLeft < 0) {
+				break;
+			}
+
+			long phraseIndex = (max - code) >>> (32 - codeLength);
+			if (phraseIndex < 0 || phraseIndex >= phraseCount) {
+				throw new IOException("Invalid HUFF/CDIC phrase index " + phraseIndex);
+			}
+			int r = (int) phraseIndex;
+			byte[] phrase = phrases[r];
+			if (!phraseExpanded[r]) {
+				// mark the phrase as expanded while it's expanded so a self reference decodes the compressed phrase like other decoders do.
+				phraseExpanded[r] = true;
+				Output expanded = new Output(phrase.length * 4);
+				unpack(phrase, 0, phrase.length, expanded, depth + 1);
+				phrase = Arrays.copyOf(expanded.buffer, expanded.length);
+				phrases[r] = phrase;
+			}
+			out.write(phrase);
+		}
+	}
+
+	/**
+	 * Read eight bytes big endian. Bytes behind the end of the data are read as zero.
+	 */
+	private static long read64(byte[] data, int pos, int end) {
+		long value = 0;
+		for (int i = pos; i < pos + 8; i++) {
+			value = (value << 8) | (i < end ? data[i] & 0xff : 0);
+		}
+		return value;
+	}
+
+	private static boolean startsWith(byte[] data, byte[] prefix) {
+		for (int i = 0; i < prefix.length; i++) {
+			if (data[i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Growable output buffer.
+	 */
+	private static class Output {
+
+		private byte[] buffer;
+
+		private int length;
+
+		Output(int capacity) {
+			buffer = new byte[Math.max(capacity, 16)];
+		}
+
+		void write(byte[] data) {
+			if (length + data.length > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + data.length));
+			}
+			System.arraycopy(data, 0, buffer, length, data.length);
+			length += data.length;
+		}
+	}
+}
@@ -1,127 +1,443 @@
 package org.rr.mobi4java.util;
 
 import java.io.UnsupportedEncodingException;
-
-import org.apache.commons.io.output.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 public class MobiLz77 {
+	
+	/** The maximum distance of a back reference which fits into the eleven distance bits. */
+	private static final int MAX_DISTANCE = 2047;
+	
+	private static final int MIN_MATCH = 3;
+	
+	/** The maximum length of a back reference which fits into the three length bits. */
+	private static final int MAX_MATCH = 10;
+	
+	private static final int HASH_BITS = 12;
 
 	public static String lz77DecodeToString(byte[] input, String encoding) throws UnsupportedEncodingException {
 		return new String(lz77Decode(input), encoding);
 	}
 
 	public static byte[] lz77Decode(byte[] input) {
-		byte[] out = new byte[input.length * 8];
-		int i = 0, o = 0;
-		while (i < input.length) {
-			int c = input[i++] & 0x00FF;
+		return lz77Decode(input, 0, input.length);
+	}
+	
+	/**
+	 * Decompress the given part of the input.
+	 * 
+	 * @param input The buffer containing the compressed bytes.
+	 * @param offset The offset of the compressed bytes in the input.
+	 * @param inputLength The number of compressed bytes.
+	 * @return The decompressed bytes.
+	 * @throws IllegalArgumentException if the input contains an invalid back reference.
+	 */
+	public static byte[] lz77Decode(byte[] input, int offset, int inputLength) {
+		// a back reference with two bytes is the best case and produces ten bytes.
+		byte[] out = new byte[inputLength * 5];
+		int length = lz77Decode(input, offset, inputLength, out, 0);
+		return Arrays.copyOf(out, length);
+	}
+	
+	/**
+	 * Decompress the given part of the input into the given output buffer. The output buffer can be reused for several records, a buffer
+	 * with the record size of the mobi header is big enough for all text records of a document.
+	 * 
+	 * @param src The buffer containing the compressed bytes.
+	 * @param off The offset of the compressed bytes in the input.
+	 * @param len The number of compressed bytes.
+	 * @param dst The buffer for the decompressed bytes.
+	 * @param dstOff The offset in the output buffer where the decompressed bytes are written to.
+	 * @return The number of decompressed bytes.
+	 * @throws BufferOverflowException if the decompressed bytes did not fit into the output buffer.
+	 * @throws IllegalArgumentException if the input contains an invalid back reference.
+	 */
+	public static int lz77Decode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+		if (off < 0 || len < 0 || off + len > src.length || dstOff < 0 || dstOff > dst.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		return decode(src, off, off + len, dst, dstOff, dst.length) - dstOff;
+	}
+	
+	/**
+	 * Decompress the remaining bytes of the source buffer into the destination buffer. The positions of both buffers are advanced by the
+	 * number of read and written bytes. Other than the array variants, the source buffer could be a read only or mapped buffer.
+	 * 
+	 * @param src The compressed bytes between position and limit.
+	 * @param dst The buffer for the decompressed bytes.
+	 * @return The number of decompressed bytes.
+	 * @throws BufferOverflowException if the decompressed bytes did not fit into the remaining bytes of the destination buffer. The
+	 *           positions of both buffers are not changed in this case.
+	 * @throws IllegalArgumentException if the input contains an invalid back reference.
+	 */
+	public static int lz77Decode(ByteBuffer src, ByteBuffer dst) {
+		byte[] out;
+		int dstOff;
+		int dstEnd;
+		if (dst.hasArray()) {
+			out = dst.array();
+			dstOff = dst.arrayOffset() + dst.position();
+			dstEnd = dst.arrayOffset() + dst.limit();
+		} else {
+			out = new byte[dst.remaining()];
+			dstOff = 0;
+			dstEnd = out.length;
+		}
+
+		int o;
+		if (src.hasArray()) {
+			int off = src.arrayOffset() + src.position();
+			o = decode(src.array(), off, off + src.remaining(), out, dstOff, dstEnd);
+		} else {
+			o = decode(src, src.position(), src.limit(), out, dstOff, dstEnd);
+		}
+
+		int length = o - dstOff;
+		if (dst.hasArray()) {
+			dst.position(dst.position() + length);
+		} else {
+			dst.put(out, 0, length);
+		}
+		src.position(src.limit());
+		return length;
+	}
+
+	/**
+	 * @return The position in the output behind the last decompressed byte.
+	 */
+	private static int decode(byte[] in, int i, int end, byte[] out, int o, int outEnd) {
+		int start = o;
+		while (i < end) {
+			int c = in[i++] & 0xff;
 			if (c >= 0x01 && c <= 0x08) {
-				for (int j = 0; j < c && i + j < input.length; j++) {
-					out[o++] = input[i + j];
-				}
+				int length = Math.min(c, end - i);
+				checkOverflow(o + length, outEnd);
+				System.arraycopy(in, i, out, o, length);
+				o += length;
 				i += c;
 			} else if (c <= 0x7f) {
+				checkOverflow(o + 1, outEnd);
 				out[o++] = (byte) c;
-			} else if (c >= 0xC0) {
+			} else if (c >= 0xc0) {
+				checkOverflow(o + 2, outEnd);
 				out[o++] = ' ';
 				out[o++] = (byte) (c ^ 0x80);
-			} else if (c <= 0xbf) {
-				if (i < input.length) {
-					c = c << 8 | input[i++] & 0xFF;
-					int length = (c & 0x0007) + 3;
-					int location = (c >> 3) & 0x7FF;
-
-					if (location > 0 && location <= o) {
-						for (int j = 0; j < length; j++) {
-							int idx = o - location;
-							out[o++] = out[idx];
-						}
-					} else {
-						// invalid idx
-					}
+			} else if (i < end) {
+				c = c << 8 | in[i++] & 0xff;
+				o = copyMatch(out, o, start, outEnd, c);
+			}
+		}
+		return o;
+	}
+
+	/**
+	 * Same as {@link #decode(byte[], int, int, byte[], int, int)} but reads from a buffer which is possibly not backed by an array.
+	 */
+	private static int decode(ByteBuffer in, int i, int end, byte[] out, int o, int outEnd) {
+		int start = o;
+		while (i < end) {
+			int c = in.get(i++) & 0xff;
+			if (c >= 0x01 && c <= 0x08) {
+				int length = Math.min(c, end - i);
+				checkOverflow(o + length, outEnd);
+				for (int j = 0; j < length; j++) {
+					out[o++] = in.get(i + j);
 				}
-			} else {
-				// unknown input
+				i += c;
+			} else if (c <= 0x7f) {
+				checkOverflow(o + 1, outEnd);
+				out[o++] = (byte) c;
+			} else if (c >= 0xc0) {
+				checkOverflow(o + 2, outEnd);
+				out[o++] = ' ';
+				out[o++] = (byte) (c ^ 0x80);
+			} else if (i < end) {
+				c = c << 8 | in.get(i++) & 0xff;
+				o = copyMatch(out, o, start, outEnd, c);
 			}
 		}
+		return o;
+	}
 
-		byte[] result = new byte[o];
-		System.arraycopy(out, 0, result, 0, o);
-		return result;
+	/**
+	 * Copy the bytes of the back reference with the given two byte compound of distance and length.
+	 * 
+	 * @return The position in the output behind the copied bytes.
+	 */
+	private static int copyMatch(byte[] out, int o, int start, int outEnd, int compound) {
+		int distance = (compound >> 3) & 0x7ff;
+		int end = o + (compound & 0x07) + MIN_MATCH;
+		if (distance == 0 || distance > o - start) {
+			throw new IllegalArgumentException("Invalid back reference with distance " + distance + " at " + (o - start));
+		}
+		checkOverflow(end, outEnd);
+		// the source and the target may overlap, so the bytes must be copied one by one.
+		for (int from = o - distance; o < end; o++, from++) {
+			out[o] = out[from];
+		}
+		return o;
+	}
+
+	private static void checkOverflow(int end, int outEnd) {
+		if (end > outEnd) {
+			throw new BufferOverflowException();
+		}
 	}
 
+	/**
+	 * The effort which is spent to compress the data.
+	 */
+	public static enum COMPRESSION_LEVEL {
+		/** Takes the longest match out of a few candidates. */
+		FAST(16, false),
+		
+		/** Takes the longest match, but defers it if the next position starts a longer match. */
+		NORMAL(256, true),
+		
+		/** Takes the matches, literals and space character pairs which are producing the smallest output. */
+		MAX(MAX_DISTANCE, true);
+		
+		/** Limits the number of previous positions with the same hash which are tested for each position. */
+		private final int maxChain;
+		
+		private final boolean lazy;
+		
+		private COMPRESSION_LEVEL(int maxChain, boolean lazy) {
+			this.maxChain = maxChain;
+			this.lazy = lazy;
+		}
+	}
+	
+	/**
+	 * Compress the given data with the {@link COMPRESSION_LEVEL#NORMAL} compression level.
+	 * 
+	 * @param b The data to be compressed. Usually a single text record with 4096 bytes.
+	 * @return The compressed data which can be decompressed with {@link #lz77Decode(byte[])}.
+	 * @see #lz77Encode(byte[], COMPRESSION_LEVEL)
+	 */
 	public static byte[] lz77Encode(byte[] b) {
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		int i = 0, tempLen = 0;
-		long compound;
-		byte[] temp = new byte[8];
-
-		outer: while (i < b.length) {
-			byte c = b[i];
-
-			if (i > 10 && b.length - i > 10) {
-				for (int chunkLength = 10; chunkLength > 2; chunkLength--) {
-					int j = find(b, i, chunkLength);
-					int dist = i - j;
-					if (j < i && dist <= 2047) {
-						compound = ((dist << 3) + chunkLength - 3);
-						out.write((char) (0x80 + (compound >> 8)));
-						out.write((char) (compound & 0xFF));
-						i += chunkLength;
-						continue outer;
+		return lz77Encode(b, COMPRESSION_LEVEL.NORMAL);
+	}
+	
+	/**
+	 * Compress the given data with the PalmDOC flavour of lz77. Back references are searched with hash chains over the three byte
+	 * prefixes of all previous positions within the maximum distance of {@value #MAX_DISTANCE} bytes.
+	 * 
+	 * @param b The data to be compressed. Usually a single text record with 4096 bytes.
+	 * @param level The compression level.
+	 * @return The compressed data which can be decompressed with {@link #lz77Decode(byte[])}.
+	 */
+	public static byte[] lz77Encode(byte[] b, COMPRESSION_LEVEL level) {
+		if (level == COMPRESSION_LEVEL.MAX) {
+			return encodeOptimal(b);
+		}
+		return encodeGreedy(b, level.maxChain, level.lazy);
+	}
+	
+	private static byte[] encodeGreedy(byte[] b, int maxChain, boolean lazy) {
+		int length = b.length;
+		// a single raw byte followed by a literal is the worst case and produces three bytes for two input bytes.
+		byte[] out = new byte[length + (length >> 1) + 2];
+		int o = 0;
+
+		int[] head = new int[1 << HASH_BITS];
+		Arrays.fill(head, -1);
+		int[] prev = new int[length];
+
+		int i = 0;
+		while (i < length) {
+			int matchLength = 0;
+			int matchDistance = 0;
+			boolean deferred = false;
+			if (i + MIN_MATCH <= length) {
+				int match = findMatch(b, i, head, prev, maxChain);
+				matchLength = match >>> 16;
+				matchDistance = match & 0xffff;
+				insert(b, i, head, prev);
+				
+				if (lazy && matchLength >= MIN_MATCH) {
+					if (matchLength == MIN_MATCH && isSpaceCharacter(b, i)) {
+						// the space character pair takes one byte for two bytes, so the next byte could start a better match.
+						matchLength = 0;
+					} else if (matchLength < MAX_MATCH && i + 1 + MIN_MATCH <= length
+							&& findMatch(b, i + 1, head, prev, maxChain) >>> 16 > matchLength) {
+						// write a single byte, so the longer match starts with the next position.
+						matchLength = 0;
+						deferred = true;
 					}
 				}
 			}
 
-			i++;
-			if (c == 32 && i < b.length) {
-				if (b[i] >= 0x40 && b[i] <= 0x7F) {
-					out.write(b[i] ^ 0x80);
-					i++;
-					continue;
+			int next;
+			if (matchLength >= MIN_MATCH) {
+				o = writeMatch(out, o, matchDistance, matchLength);
+				next = i + matchLength;
+			} else if (isSpaceCharacter(b, i) && !deferred) {
+				out[o++] = (byte) (b[i + 1] ^ 0x80);
+				next = i + 2;
+			} else if (isLiteral(b[i])) {
+				out[o++] = b[i];
+				next = i + 1;
+			} else {
+				int rawLength = 1;
+				while (!deferred && rawLength < 8 && i + rawLength < length && !isLiteral(b[i + rawLength])) {
+					rawLength++;
 				}
+				o = writeRaw(b, i, rawLength, out, o);
+				next = i + rawLength;
 			}
-			if (c == 0 || (c > 8 && c < 0x80)) {
-				out.write(c);
-			} else {
-				int j = i;
-				temp[0] = c;
-				tempLen = 1;
-				while (j < b.length && tempLen < 8) {
-					c = b[j];
-					if (c == 0 || (c > 8 && c < 0x80)) {
-						break;
-					}
-					temp[tempLen++] = c;
-					j++;
+
+			// make the positions which are skipped by the match or the literals available for later matches.
+			for (int j = i + 1; j < next && j + MIN_MATCH <= length; j++) {
+				insert(b, j, head, prev);
+			}
+			i = next;
+		}
+		return Arrays.copyOf(out, o);
+	}
+	
+	/**
+	 * Compress the given data with the smallest possible output. The longest match of each position is searched first, afterwards the
+	 * cheapest way from each position to the end of the data is computed backwards. Because a shorter part of a match is also a match,
+	 * all match lengths up to the longest one are taken into account.
+	 */
+	private static byte[] encodeOptimal(byte[] b) {
+		int length = b.length;
+		int[] head = new int[1 << HASH_BITS];
+		Arrays.fill(head, -1);
+		int[] prev = new int[length];
+		int[] matches = new int[length];
+		for (int i = 0; i + MIN_MATCH <= length; i++) {
+			matches[i] = findMatch(b, i, head, prev, COMPRESSION_LEVEL.MAX.maxChain);
+			insert(b, i, head, prev);
+		}
+
+		// the number of output bytes from each position to the end and the number of input bytes taken at each position.
+		int[] cost = new int[length + 1];
+		int[] step = new int[length + 1];
+		for (int i = length - 1; i >= 0; i--) {
+			int bestCost = Integer.MAX_VALUE;
+			int bestStep = 0;
+			if (isLiteral(b[i]) && 1 + cost[i + 1] < bestCost) {
+				bestCost = 1 + cost[i + 1];
+				bestStep = 1;
+			}
+			if (isSpaceCharacter(b, i) && 1 + cost[i + 2] < bestCost) {
+				bestCost = 1 + cost[i + 2];
+				bestStep = 2;
+			}
+			for (int matchLength = MIN_MATCH; matchLength <= matches[i] >>> 16; matchLength++) {
+				if (2 + cost[i + matchLength] < bestCost) {
+					bestCost = 2 + cost[i + matchLength];
+					bestStep = matchLength;
 				}
-				i += tempLen - 1;
-				out.write((char) tempLen);
-				for (j = 0; j < tempLen; j++) {
-					out.write((char) temp[j]);
+			}
+			for (int rawLength = 1; rawLength <= 8 && i + rawLength <= length; rawLength++) {
+				if (1 + rawLength + cost[i + rawLength] < bestCost) {
+					bestCost = 1 + rawLength + cost[i + rawLength];
+					// raw bytes are marked with a negative step
+					bestStep = -rawLength;
 				}
 			}
+			cost[i] = bestCost;
+			step[i] = bestStep;
+		}
 
+		byte[] out = new byte[cost[0]];
+		int o = 0;
+		int i = 0;
+		while (i < length) {
+			int s = step[i];
+			if (s < 0) {
+				o = writeRaw(b, i, -s, out, o);
+				i -= s;
+			} else if (s >= MIN_MATCH) {
+				o = writeMatch(out, o, matches[i] & 0xffff, s);
+				i += s;
+			} else if (s == 2) {
+				out[o++] = (byte) (b[i + 1] ^ 0x80);
+				i += 2;
+			} else {
+				out[o++] = b[i++];
+			}
 		}
-		return out.toByteArray();
+		return out;
 	}
-
-	private static int find(byte[] data, int pos, int chunkLength) {
-		for (int i = pos - chunkLength; i > -1; i--) {
-			if (compare(data, i, pos, chunkLength)) {
-				return i;
+	
+	/**
+	 * Search the longest previous match for the given position. The position itself must not be inserted into the hash chains yet.
+	 * 
+	 * @return The match length in the upper and the distance in the lower 16 bits.
+	 */
+	private static int findMatch(byte[] b, int i, int[] head, int[] prev, int maxChain) {
+		int matchLength = 0;
+		int matchDistance = 0;
+		int maxLength = Math.min(MAX_MATCH, b.length - i);
+		int candidate = head[hash(b, i)];
+		int chain = maxChain;
+		while (candidate >= 0 && i - candidate <= MAX_DISTANCE && chain-- > 0) {
+			// the byte behind the current best match must be equal, otherwise the candidate could not be longer.
+			if (b[candidate + matchLength] == b[i + matchLength]) {
+				int l = matchLength(b, candidate, i, maxLength);
+				if (l > matchLength) {
+					matchLength = l;
+					matchDistance = i - candidate;
+					if (l == maxLength) {
+						break;
+					}
+				}
 			}
+			candidate = prev[candidate];
 		}
-		return pos;
+		return matchLength < MIN_MATCH ? 0 : matchLength << 16 | matchDistance;
+	}
+	
+	private static void insert(byte[] b, int i, int[] head, int[] prev) {
+		int hash = hash(b, i);
+		prev[i] = head[hash];
+		head[hash] = i;
+	}
+	
+	private static int writeMatch(byte[] out, int o, int distance, int length) {
+		int compound = 0x8000 | (distance << 3) | (length - MIN_MATCH);
+		out[o++] = (byte) (compound >> 8);
+		out[o++] = (byte) compound;
+		return o;
+	}
+	
+	private static int writeRaw(byte[] b, int i, int rawLength, byte[] out, int o) {
+		out[o++] = (byte) rawLength;
+		System.arraycopy(b, i, out, o, rawLength);
+		return o + rawLength;
+	}
+	
+	/**
+	 * A space followed by a character between 0x40 and 0x7f which is written as one byte.
+	 */
+	private static boolean isSpaceCharacter(byte[] b, int i) {
+		return b[i] == ' ' && i + 1 < b.length && b[i + 1] >= 0x40;
 	}
 
-	private static boolean compare(byte[] data, int off1, int off2, int len) {
-		for (int i = 0; i < len; i++) {
-			if (data[off1 + i] != data[off2 + i]) {
-				return false;
-			}
+	/**
+	 * Bytes which can be written as they are. All other bytes must be written with a preceding byte count between 1 and 8.
+	 */
+	private static boolean isLiteral(byte c) {
+		return c == 0 || c > 8;
+	}
+
+	private static int hash(byte[] data, int pos) {
+		int value = (data[pos] & 0xff) << 16 | (data[pos + 1] & 0xff) << 8 | (data[pos + 2] & 0xff);
+		return (value * 0x9E3779B1) >>> (32 - HASH_BITS);
+	}
+
+	private static int matchLength(byte[] data, int match, int pos, int maxLength) {
+		int length = 0;
+		while (length < maxLength && data[match + length] == data[pos + length]) {
+			length++;
 		}
-		return true;
+		return length;
 	}
 
 }
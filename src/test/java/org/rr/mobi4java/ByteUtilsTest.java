@@ -0,0 +1,82 @@
+package org.rr.mobi4java;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class ByteUtilsTest {
+
+	private static final byte[] DATA = new byte[] {(byte) 0xff, (byte) 0xfe, 0x01, 0x02, (byte) 0x80, 0x00, 0x00, 0x01};
+
+	@Test
+	public void testUnsignedGetters() {
+		assertEquals(0xff, ByteUtils.getU8(DATA, 0));
+		assertEquals(0xfffe, ByteUtils.getU16(DATA, 0));
+		assertEquals(0xfe0102, ByteUtils.getU24(DATA, 1));
+		assertEquals(0xfffe0102L, ByteUtils.getU32(DATA, 0));
+		assertEquals(0x80000001, ByteUtils.getInt32(DATA, 4));
+		assertEquals(-1, ByteUtils.getInt32(new byte[] {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff}, 0));
+	}
+
+	@Test
+	public void testByteBufferGettersMatchArrayGetters() {
+		ByteBuffer direct = ByteBuffer.allocateDirect(DATA.length);
+		direct.put(DATA).flip();
+		for (int i = 0; i < DATA.length - 3; i++) {
+			assertEquals(ByteUtils.getU8(DATA, i), ByteUtils.getU8(direct, i));
+			assertEquals(ByteUtils.getU16(DATA, i), ByteUtils.getU16(direct, i));
+			assertEquals(ByteUtils.getU24(DATA, i), ByteUtils.getU24(direct, i));
+			assertEquals(ByteUtils.getU32(DATA, i), ByteUtils.getU32(direct, i));
+			assertEquals(ByteUtils.getInt32(DATA, i), ByteUtils.getInt32(direct, i));
+		}
+	}
+
+	@Test
+	public void testLegacyGettersMatchFixedWidthGetters() {
+		assertEquals(ByteUtils.getInt32(DATA, 2), ByteUtils.getInt(DATA, 2, 4));
+		assertEquals(ByteUtils.getU16(DATA, 3), ByteUtils.getInt(DATA, 3, 2));
+		assertEquals(ByteUtils.getU32(DATA, 0), ByteUtils.getLong(DATA, 0, 4));
+	}
+
+	@Test
+	public void testPutAndWriteRoundTrip() throws IOException {
+		byte[] buffer = new byte[10];
+		ByteUtils.putU8(buffer, 0, 0xab);
+		ByteUtils.putU16(buffer, 1, 0xcdef);
+		ByteUtils.putU24(buffer, 3, 0x123456);
+		ByteUtils.putU32(buffer, 6, 0xfedcba98L);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteUtils.writeInt(0xab, 1, out);
+		ByteUtils.writeInt(0xcdef, 2, out);
+		ByteUtils.writeInt(0x123456, 3, out);
+		ByteUtils.writeLong(0xfedcba98L, 4, out);
+		assertArrayEquals(buffer, out.toByteArray());
+
+		assertEquals(0xab, ByteUtils.getU8(buffer, 0));
+		assertEquals(0xcdef, ByteUtils.getU16(buffer, 1));
+		assertEquals(0x123456, ByteUtils.getU24(buffer, 3));
+		assertEquals(0xfedcba98L, ByteUtils.getU32(buffer, 6));
+	}
+
+	@Test
+	public void testStringIsTerminatedAtZeroByte() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteUtils.writeString("EXTH", 8, out);
+		byte[] bytes = out.toByteArray();
+		assertEquals(8, bytes.length);
+		assertEquals("EXTH", ByteUtils.getString(bytes, 0, 8));
+		assertEquals("XT", ByteUtils.getString(bytes, 1, 2));
+		assertEquals("EXTH", ByteUtils.getString(ByteBuffer.wrap(bytes), 0, 8));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testStringLongerThanField() throws IOException {
+		ByteUtils.writeString("EXTHEXTH", 4, new ByteArrayOutputStream());
+	}
+}
@@ -0,0 +1,63 @@
+package org.rr.mobi4java;
+
+import static org.apache.commons.lang3.CharEncoding.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.rr.mobi4java.EXTHRecord.RECORD_TYPE;
+
+public class EXTHHeaderTest {
+
+	@Test
+	public void testReadWrittenHeader() throws IOException {
+		byte[] exth = createEXTHHeader();
+		EXTHHeader header = new EXTHHeader(0).readEXTHHeader(exth);
+
+		assertEquals(3, header.getRecordList().size());
+		assertEquals(2, header.getRecords(RECORD_TYPE.AUTHOR).size());
+		assertEquals("Second Author", new String(header.getRecords(RECORD_TYPE.AUTHOR).get(1).getData(), UTF_8));
+		assertEquals(exth.length, header.size());
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedHeader() throws IOException {
+		byte[] exth = createEXTHHeader();
+		new EXTHHeader(0).readEXTHHeader(Arrays.copyOf(exth, exth.length - 8));
+	}
+
+	@Test(expected = IOException.class)
+	public void testRecordLengthBeyondHeader() throws IOException {
+		byte[] exth = createEXTHHeader();
+		ByteUtils.putU32(exth, 12 + 4, 0x7fffffff);
+		new EXTHHeader(0).readEXTHHeader(exth);
+	}
+
+	@Test(expected = IOException.class)
+	public void testRecordLengthTooSmall() throws IOException {
+		byte[] exth = createEXTHHeader();
+		ByteUtils.putU32(exth, 12 + 4, 4);
+		new EXTHHeader(0).readEXTHHeader(exth);
+	}
+
+	@Test(expected = IOException.class)
+	public void testRecordCountBeyondHeader() throws IOException {
+		byte[] exth = createEXTHHeader();
+		ByteUtils.putU32(exth, 8, 4);
+		new EXTHHeader(0).readEXTHHeader(exth);
+	}
+
+	private byte[] createEXTHHeader() throws IOException {
+		EXTHHeader header = new EXTHHeader(0);
+		header.addRecord(EXTHRecordFactory.createStringRecord(RECORD_TYPE.AUTHOR, "First Author", UTF_8).getRecord());
+		header.addRecord(EXTHRecordFactory.createStringRecord(RECORD_TYPE.PUBLISHER, "Publisher", UTF_8).getRecord());
+		header.addRecord(EXTHRecordFactory.createStringRecord(RECORD_TYPE.AUTHOR, "Second Author", UTF_8).getRecord());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		header.writeEXTHHeader(out);
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,177 @@
+package org.rr.mobi4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.rr.mobi4java.MobiTestUtils.createCorruptRecordTable;
+import static org.rr.mobi4java.MobiTestUtils.getResourceData;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rr.mobi4java.MobiLibraryScanner.Result;
+import org.rr.mobi4java.MobiLibraryScanner.ResultIterator;
+
+public class MobiLibraryScannerTest {
+
+	private static final String JAPANESE_FAIRYTALES_MOBI = "/japanese_fairytales.mobi";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private Path library;
+
+	@Before
+	public void createLibrary() throws IOException {
+		byte[] mobiData = getResourceData(JAPANESE_FAIRYTALES_MOBI);
+		library = temporaryFolder.newFolder("library").toPath();
+		Path authors = Files.createDirectories(library.resolve("authors").resolve("alberti"));
+		Files.write(library.resolve("fairytales.mobi"), mobiData);
+		Files.write(authors.resolve("fairytales.azw"), mobiData);
+		Files.write(authors.resolve("FAIRYTALES.PRC"), mobiData);
+		Files.write(authors.resolve("broken.mobi"), new byte[] { 'B', 'O', 'O', 'K' });
+		Files.write(authors.resolve("corrupt.prc"), createCorruptRecordTable(mobiData));
+		Files.write(authors.resolve("notes.txt"), mobiData);
+	}
+
+	@Test
+	public void testScan() throws IOException, InterruptedException {
+		final List<Result> results = new ArrayList<>();
+		MobiLibraryScanner scanner = new MobiLibraryScanner();
+		scanner.setParallelism(2);
+		scanner.scan(library, new MobiLibraryScanner.Callback() {
+
+			@Override
+			public void scanned(Result result) {
+				results.add(result);
+			}
+		});
+		verifyResults(results);
+	}
+
+	@Test
+	public void testScanWithExecutor() throws IOException, InterruptedException {
+		final List<Result> results = Collections.synchronizedList(new ArrayList<Result>());
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			MobiLibraryScanner scanner = new MobiLibraryScanner();
+			scanner.setExecutor(executor);
+			scanner.scan(library, new MobiLibraryScanner.Callback() {
+
+				@Override
+				public void scanned(Result result) {
+					results.add(result);
+				}
+			});
+			assertFalse(executor.isShutdown());
+		} finally {
+			executor.shutdown();
+		}
+		verifyResults(results);
+	}
+
+	@Test
+	public void testIterator() throws IOException {
+		List<Result> results = new ArrayList<>();
+		MobiLibraryScanner scanner = new MobiLibraryScanner();
+		scanner.setParallelism(1);
+		try (ResultIterator iterator = scanner.iterator(library)) {
+			while (iterator.hasNext()) {
+				results.add(iterator.next());
+			}
+		}
+		verifyResults(results);
+	}
+
+	@Test
+	public void testCloseIterator() throws IOException {
+		MobiLibraryScanner scanner = new MobiLibraryScanner();
+		scanner.setParallelism(1);
+		ResultIterator iterator = scanner.iterator(library);
+		assertTrue(iterator.hasNext());
+		assertNotNull(iterator.next().getPath());
+		iterator.close();
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void testCloseIteratorReleasesExecutor() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			MobiLibraryScanner scanner = new MobiLibraryScanner();
+			scanner.setParallelism(1);
+			scanner.setExecutor(executor);
+			ResultIterator iterator = scanner.iterator(library);
+			assertTrue(iterator.hasNext());
+			// give the executor thread the time to read the next files until it waits for the full queue.
+			Thread.sleep(200);
+			iterator.close();
+
+			Future<Boolean> interrupted = executor.submit(new Callable<Boolean>() {
+
+				@Override
+				public Boolean call() {
+					return Thread.currentThread().isInterrupted();
+				}
+			});
+			assertFalse(interrupted.get(5, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testIteratorOnMissingDirectory() throws IOException {
+		List<Result> results = new ArrayList<>();
+		try (ResultIterator iterator = new MobiLibraryScanner().iterator(new File(temporaryFolder.getRoot(), "missing").toPath())) {
+			while (iterator.hasNext()) {
+				results.add(iterator.next());
+			}
+		}
+		assertEquals(1, results.size());
+		assertNull(results.get(0).getMetaData());
+		assertTrue(results.get(0).getError() instanceof IOException);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidParallelism() {
+		new MobiLibraryScanner().setParallelism(0);
+	}
+
+	private void verifyResults(List<Result> results) {
+		assertEquals(5, results.size());
+		Set<String> fileNames = new HashSet<>();
+		for (Result result : results) {
+			fileNames.add(result.getPath().getFileName().toString());
+			if(result.getPath().endsWith("broken.mobi") || result.getPath().endsWith("corrupt.prc")) {
+				assertNull(result.getMetaData());
+				assertNotNull(result.getError());
+			} else {
+				assertNull(result.getError());
+				assertEquals("Japanische Märchen", result.getMetaData().getFullName());
+			}
+		}
+		assertTrue(fileNames.contains("fairytales.mobi"));
+		assertTrue(fileNames.contains("fairytales.azw"));
+		assertTrue(fileNames.contains("FAIRYTALES.PRC"));
+		assertTrue(fileNames.contains("corrupt.prc"));
+	}
+}
@@ -0,0 +1,250 @@
+package org.rr.mobi4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.rr.mobi4java.ByteUtils.putU32;
+import static org.rr.mobi4java.ByteUtils.writeVarLen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the headword lookup and the inflections with synthetic index records. Each entry has the tags POS and LEN and the position of an
+ * entry is its number multiplied by 100.
+ */
+public class MobiOrthographicIndexTest {
+
+	private static final String[][] HEADWORDS = new String[][] {
+		{ "apple", "banana", "cherry" },
+		{ "date", "elder", "fig" },
+		{ "grape", "ärger" }
+	};
+
+	@Test
+	public void testLookup() throws IOException {
+		MobiOrthographicIndex index = createIndex(null);
+		assertEquals(0, index.lookup("apple"));
+		assertEquals(200, index.lookup("cherry"));
+		assertEquals(300, index.lookup("date"));
+		assertEquals(500, index.lookup("fig"));
+		assertEquals(600, index.lookup("grape"));
+		assertEquals(700, index.lookup("ärger"));
+	}
+
+	@Test
+	public void testLookupMissingHeadword() throws IOException {
+		MobiOrthographicIndex index = createIndex(null);
+		assertEquals(-1, index.lookup("aardvark"));
+		assertEquals(-1, index.lookup("cherries"));
+		assertEquals(-1, index.lookup("figs"));
+		assertEquals(-1, index.lookup("zebra"));
+		assertEquals(-1, index.lookup(""));
+	}
+
+	@Test
+	public void testLookupWithOrdt() throws IOException {
+		// the ORDT table defines the order of the characters, so the keys are sorted by the ORDT index and not by the characters.
+		char[] ordt = "zyxwvutsrqponmlkjihgfedcbaä".toCharArray();
+		MobiOrthographicIndex index = createIndex(ordt);
+		assertEquals(0, index.lookup("grape"));
+		assertEquals(600, index.lookup("apple"));
+		assertEquals(700, index.lookup("ärger"));
+		assertEquals(-1, index.lookup("Apple"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidEntry() throws IOException {
+		MobiOrthographicIndex index = createIndex(null);
+		index.getHeadword(index.getEntryCount());
+	}
+
+	@Test
+	public void testApplyInflectionRule() {
+		assertEquals("runs", applyRule("run", 0x02, 's'));
+		assertEquals("ran", applyRule("run", 0x03, 'n', 'u', 0x02, 'n', 'a'));
+		assertEquals("mice", applyRule("mouse", 0x03, 'e', 's', 'u', 'o', 0x02, 'e', 'c', 'i'));
+		assertEquals("rerun", applyRule("run", 0x01, 'r', 'e'));
+		assertEquals("un", applyRule("run", 0x04, 'r'));
+		assertEquals("runes", applyRule("runs", 0x0b, 'e'));
+		assertNull(applyRule("run", 0x03, 'x'));
+		assertNull(applyRule("run", 's'));
+	}
+
+	@Test
+	public void testResolveInflectedForm() throws IOException {
+		// orthographic index with the headwords "mouse" and "run" which are referencing the inflection groups 1 and 0.
+		List<byte[]> orthographicEntries = new ArrayList<>();
+		orthographicEntries.add(createEntry("mouse", 0x07, 0, 100, 1));
+		orthographicEntries.add(createEntry("run", 0x07, 100, 100, 0));
+		MobiContentIndex orthographicIndex = new MobiContentIndex(createIndexRecord(new ArrayList<byte[]>(),
+				createTagx(1, 1, 0x01, 2, 1, 0x02, 0x2a, 1, 0x04), null));
+		List<MobiContentIndex> orthographicData = Arrays.asList(new MobiContentIndex(createIndexRecord(orthographicEntries, null, null)));
+
+		// inflection index with two groups followed by the rules, the rule count of a group is stored in the control byte.
+		List<byte[]> inflectionEntries = new ArrayList<>();
+		inflectionEntries.add(createEntry("", 0x09, 0, 2, 3));
+		inflectionEntries.add(createEntry("", 0x05, 0, 4));
+		inflectionEntries.add(createEntry(new byte[] { 0x02, 's' }, 0x00));
+		inflectionEntries.add(createEntry(new byte[] { 0x03, 'n', 'u', 0x02, 'n', 'a' }, 0x00));
+		MobiContentIndex inflectionIndex = new MobiContentIndex(createIndexRecord(new ArrayList<byte[]>(),
+				createTagx(0x05, 1, 0x01, 0x1a, 1, 0x0c), null));
+		List<byte[]> inflectionEntries2 = new ArrayList<>();
+		inflectionEntries2.add(createEntry(new byte[] { 0x03, 'e', 's', 'u', 'o', 0x02, 'e', 'c', 'i' }, 0x00));
+		List<MobiContentIndex> inflectionData = Arrays.asList(new MobiContentIndex(createIndexRecord(inflectionEntries, null, null)),
+				new MobiContentIndex(createIndexRecord(inflectionEntries2, null, null)));
+
+		MobiOrthographicIndex index = new MobiOrthographicIndex(orthographicIndex, orthographicData);
+		MobiInflectionIndex inflections = new MobiInflectionIndex(index, inflectionIndex, inflectionData, 2);
+		assertEquals("run", inflections.resolve("ran"));
+		assertEquals("run", inflections.resolve("runs"));
+		assertEquals("run", inflections.resolve("run"));
+		assertEquals("mouse", inflections.resolve("mice"));
+		assertNull(inflections.resolve("mouses"));
+		assertEquals("run", inflections.resolve("ran"));
+		assertEquals(100, index.lookup(inflections.resolve("runs")));
+	}
+
+	private static String applyRule(String headword, int... rule) {
+		byte[] ruleBytes = new byte[rule.length];
+		for (int i = 0; i < rule.length; i++) {
+			ruleBytes[i] = (byte) rule[i];
+		}
+		byte[] inflection = MobiInflectionIndex.applyRule(headword.getBytes(StandardCharsets.UTF_8), ruleBytes);
+		return inflection != null ? new String(inflection, StandardCharsets.UTF_8) : null;
+	}
+
+	private static byte[] createEntry(String key, int controlByte, int... values) throws IOException {
+		return createEntry(key.getBytes(StandardCharsets.UTF_8), controlByte, values);
+	}
+
+	private static byte[] createEntry(byte[] key, int controlByte, int... values) throws IOException {
+		ByteArrayOutputStream entry = new ByteArrayOutputStream();
+		entry.write(key.length);
+		entry.write(key, 0, key.length);
+		entry.write(controlByte);
+		for (int value : values) {
+			writeVarLen(value, entry);
+		}
+		return entry.toByteArray();
+	}
+
+	/**
+	 * Create a TAGX with one control byte for the given tag number, values per entry and bitmask triples.
+	 */
+	private static byte[] createTagx(int... tags) {
+		ByteArrayOutputStream tagx = new ByteArrayOutputStream();
+		int length = 12 + (tags.length / 3 + 1) * 4;
+		tagx.write(new byte[] { 'T', 'A', 'G', 'X', 0, 0, 0, (byte) length, 0, 0, 0, 1 }, 0, 12);
+		for (int i = 0; i < tags.length; i += 3) {
+			tagx.write(new byte[] { (byte) tags[i], (byte) tags[i + 1], (byte) tags[i + 2], 0 }, 0, 4);
+		}
+		tagx.write(new byte[] { 0, 0, 0, 1 }, 0, 4);
+		return tagx.toByteArray();
+	}
+
+	private static MobiOrthographicIndex createIndex(char[] ordt) throws IOException {
+		List<String> headwords = new ArrayList<>();
+		for (String[] record : HEADWORDS) {
+			headwords.addAll(Arrays.asList(record));
+		}
+		List<byte[]> keys = new ArrayList<>();
+		for (String headword : headwords) {
+			keys.add(encode(headword, ordt));
+		}
+		List<byte[]> sortedKeys = new ArrayList<>(keys);
+		Collections.sort(sortedKeys, new Comparator<byte[]>() {
+
+			@Override
+			public int compare(byte[] a, byte[] b) {
+				return compareKeys(a, b);
+			}
+		});
+
+		List<MobiContentIndex> dataRecords = new ArrayList<>();
+		int entry = 0;
+		for (String[] record : HEADWORDS) {
+			List<byte[]> entries = new ArrayList<>();
+			for (int i = 0; i < record.length; i++, entry++) {
+				entries.add(createEntry(sortedKeys.get(entry), 0x03, entry * 100, 100));
+			}
+			dataRecords.add(new MobiContentIndex(createIndexRecord(entries, null, null)));
+		}
+
+		MobiContentIndex index = new MobiContentIndex(createIndexRecord(new ArrayList<byte[]>(), createTagx(1, 1, 0x01, 2, 1, 0x02), ordt));
+		return new MobiOrthographicIndex(index, dataRecords);
+	}
+
+	private static byte[] createIndexRecord(List<byte[]> entries, byte[] tagx, char[] ordt) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		if(tagx != null) {
+			body.write(tagx);
+		}
+		int ordtOffset = 192 + body.size();
+		if(ordt != null) {
+			body.write(new byte[] { 'O', 'R', 'D', 'T' });
+			for (char c : ordt) {
+				body.write(c >> 8);
+				body.write(c);
+			}
+		}
+		int[] entryOffsets = new int[entries.size()];
+		for (int i = 0; i < entries.size(); i++) {
+			entryOffsets[i] = 192 + body.size();
+			body.write(entries.get(i));
+		}
+		int idxtOffset = 192 + body.size();
+		body.write(new byte[] { 'I', 'D', 'X', 'T' });
+		for (int entryOffset : entryOffsets) {
+			body.write(entryOffset >> 8);
+			body.write(entryOffset);
+		}
+		body.write(new byte[] { 0, 0 });
+
+		byte[] header = new byte[192];
+		System.arraycopy(new byte[] { 'I', 'N', 'D', 'X' }, 0, header, 0, 4);
+		putU32(header, 4, 192);
+		putU32(header, 20, idxtOffset);
+		putU32(header, 24, entries.size());
+		putU32(header, 28, 65001);
+		if(ordt != null) {
+			putU32(header, 164, 1);
+			putU32(header, 168, ordt.length);
+			putU32(header, 176, ordtOffset);
+		}
+		putU32(header, 180, tagx != null ? 192 : 0);
+
+		ByteArrayOutputStream record = new ByteArrayOutputStream();
+		record.write(header);
+		body.writeTo(record);
+		return record.toByteArray();
+	}
+
+	private static byte[] encode(String headword, char[] ordt) {
+		if(ordt == null) {
+			return headword.getBytes(StandardCharsets.UTF_8);
+		}
+		byte[] key = new byte[headword.length()];
+		for (int i = 0; i < key.length; i++) {
+			key[i] = (byte) new String(ordt).indexOf(headword.charAt(i));
+		}
+		return key;
+	}
+
+	private static int compareKeys(byte[] a, byte[] b) {
+		for (int i = 0; i < Math.min(a.length, b.length); i++) {
+			int difference = (a[i] & 0xff) - (b[i] & 0xff);
+			if(difference != 0) {
+				return difference;
+			}
+		}
+		return a.length - b.length;
+	}
+}
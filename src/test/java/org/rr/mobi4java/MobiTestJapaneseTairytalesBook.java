@@ -2,8 +2,12 @@ package org.rr.mobi4java;
 
 import static org.apache.commons.lang3.CharEncoding.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.rr.mobi4java.MobiTestUtils.createCorruptRecordTable;
 import static org.rr.mobi4java.MobiTestUtils.createJpegCover;
 import static org.rr.mobi4java.MobiTestUtils.createReader;
 import static org.rr.mobi4java.MobiTestUtils.getResourceData;
@@ -11,12 +15,19 @@ import static org.rr.mobi4java.MobiTestUtils.reReadDocument;
 import static org.rr.mobi4java.MobiTestUtils.readDoc;
 import static org.rr.mobi4java.MobiTestUtils.writeDoc;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rr.mobi4java.EXTHRecord.RECORD_TYPE;
+import org.rr.mobi4java.MobiContent.CONTENT_TYPE;
 import org.rr.mobi4java.exth.DateRecordDelegate;
 import org.rr.mobi4java.exth.ISBNRecordDelegate;
 import org.rr.mobi4java.exth.StringRecordDelegate;
@@ -25,6 +36,9 @@ import org.rr.mobi4java.exth.StringRecordDelegate;
 public class MobiTestJapaneseTairytalesBook {
 
 	private static final String JAPANESE_FAIRYTALES_MOBI = "/japanese_fairytales.mobi";
+	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
 	@Test
 	public void testReadWriteMobiFile() throws IOException {
@@ -41,6 +55,185 @@ public class MobiTestJapaneseTairytalesBook {
 		verifyPg23393MobiContent(newDoc);
 	}
 
+	@Test
+	public void testReadMappedMobiFile() throws IOException {
+		byte[] mobiData = getResourceData(JAPANESE_FAIRYTALES_MOBI);
+		File mobiFile = temporaryFolder.newFile("japanese_fairytales.mobi");
+		Files.write(mobiFile.toPath(), mobiData);
+		
+		MobiDocument doc = new MobiReader().read(mobiFile.toPath());
+		verifyPg23393MobiContent(doc);
+		
+		assertTrue(Arrays.equals(writeDoc(createReader(mobiData)), writeDoc(doc)));
+	}
+
+	@Test
+	public void testReadMetaDataOnly() throws IOException {
+		File mobiFile = temporaryFolder.newFile("japanese_fairytales.mobi");
+		Files.write(mobiFile.toPath(), getResourceData(JAPANESE_FAIRYTALES_MOBI));
+		
+		MobiMetaData metaData = new MobiReader().readMetaData(mobiFile.toPath());
+		assertEquals("Japanische Märchen", metaData.getFullName());
+		assertEquals("de", metaData.getLanguageRecord().getLanguageCode());
+		assertEquals(0, metaData.getAuthorRecords().size());
+		assertEquals(1, metaData.getCoverOffset());
+		assertEquals(22, metaData.getEXTHRecords().size());
+	}
+
+	@Test
+	public void testReadMetaDataWithCorruptRecordTable() throws IOException {
+		File mobiFile = temporaryFolder.newFile("corrupt.prc");
+		Files.write(mobiFile.toPath(), createCorruptRecordTable(getResourceData(JAPANESE_FAIRYTALES_MOBI)));
+
+		try {
+			new MobiReader().readMetaData(mobiFile.toPath());
+			fail("The corrupt record table was not detected");
+		} catch (IOException e) {
+			// the record is rejected before its buffer of nearly 2 GB is allocated and read.
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid first record"));
+		}
+	}
+	
+	@Test
+	public void testRecordsAreViewsUntilMaterialized() throws IOException {
+		byte[] mobiData = getResourceData(JAPANESE_FAIRYTALES_MOBI);
+		MobiDocument doc = createReader(mobiData);
+		
+		List<MobiContent> images = doc.getImageContents();
+		for (MobiContent image : images) {
+			assertTrue(image.isView());
+		}
+		
+		byte[] cover = doc.getCover();
+		cover[cover.length - 1] = 0;
+		assertFalse(MobiUtils.findContentsByType(doc.getMobiContents(), CONTENT_TYPE.COVER).get(0).isView());
+		
+		MobiDocument newDoc = reReadDocument(doc);
+		assertTrue(Arrays.equals(cover, newDoc.getCover()));
+		assertEquals(mobiData.length, writeDoc(newDoc).length);
+	}
+
+	@Test
+	public void testRecordClassification() throws IOException {
+		MobiDocument doc = createReader(getResourceData(JAPANESE_FAIRYTALES_MOBI));
+		List<MobiContent> contents = doc.getMobiContents();
+
+		assertEquals(CONTENT_TYPE.CONTENT, contents.get(1).getType());
+		assertEquals(CONTENT_TYPE.INDEX, contents.get(60).getType());
+		assertEquals(CONTENT_TYPE.IMAGE, contents.get(63).getType());
+		assertEquals(CONTENT_TYPE.COVER, contents.get(64).getType());
+		assertEquals(CONTENT_TYPE.THUMBNAIL, contents.get(66).getType());
+		assertNull(contents.get(1).getMimeType());
+
+		for (MobiContent image : doc.getImageContents()) {
+			assertEquals("image/jpeg", image.getMimeType());
+		}
+	}
+
+	@Test
+	public void testGetTextRange() throws IOException {
+		MobiDocument doc = createReader(getResourceData(JAPANESE_FAIRYTALES_MOBI));
+		byte[] text = doc.getTextContent().getBytes(UTF_8);
+		
+		assertEquals("<html>", doc.getText(0, 6));
+		assertEquals(new String(text, 4000, 200, UTF_8), doc.getText(4000, 200));
+		assertEquals(new String(text, 4096 * 3 - 10, 4096 + 20, UTF_8), doc.getText(4096 * 3 - 10, 4096 + 20));
+		assertEquals(new String(text, text.length - 7, 7, UTF_8), doc.getText(text.length - 7, 100));
+		assertEquals("", doc.getText(text.length, 10));
+		assertEquals("", doc.getText(100, 0));
+	}
+
+	@Test
+	public void testTableOfContents() throws IOException {
+		MobiDocument doc = createReader(getResourceData(JAPANESE_FAIRYTALES_MOBI));
+		MobiTableOfContents toc = doc.getTableOfContents();
+		assertEquals(28, toc.size());
+
+		assertEquals(2107, toc.getPosition(0));
+		assertEquals(293, toc.getLength(0));
+		assertEquals(0, toc.getNameOffset(0));
+		assertEquals(0, toc.getDepth(0));
+		assertEquals(-1, toc.getParent(0));
+
+		assertEquals(2, toc.getFirstChild(1));
+		assertEquals(27, toc.getLastChild(1));
+		for (int i = 2; i < toc.size(); i++) {
+			assertEquals(1, toc.getDepth(i));
+			assertEquals(1, toc.getParent(i));
+			assertTrue(doc.getText(toc.getPosition(i), 3).startsWith("<h"));
+			if(i > 2) {
+				assertEquals(toc.getPosition(i - 1) + toc.getLength(i - 1), toc.getPosition(i));
+			}
+		}
+
+		doc.setTextContent("<html><body>changed</body></html>");
+		assertTrue(doc.getTableOfContents().isEmpty());
+	}
+
+	@Test
+	public void testTableOfContentsLabels() throws IOException {
+		MobiDocument doc = createReader(getResourceData(JAPANESE_FAIRYTALES_MOBI));
+		MobiTableOfContents toc = doc.getTableOfContents();
+		assertEquals(1, toc.getCncx().getRecordCount());
+		assertEquals("Zur Einführung.", toc.getName(2));
+		assertEquals("Inhalts-Verzeichnis.", toc.getName(27));
+		assertTrue(toc.getName(2) == toc.getName(2));
+		assertNull(toc.getDescription(2));
+		assertNull(toc.getAuthor(2));
+		assertTrue(doc.getMobiContents().get(62).isView());
+	}
+
+	@Test
+	public void testChapterText() throws IOException {
+		MobiDocument doc = createReader(getResourceData(JAPANESE_FAIRYTALES_MOBI));
+		MobiTableOfContents toc = doc.getTableOfContents();
+		byte[] text = doc.getTextContent().getBytes(UTF_8);
+		
+		String chapter = doc.getChapterText(2);
+		assertEquals(new String(text, 3180, 2693, UTF_8), chapter);
+		assertTrue(chapter.startsWith("<h3"));
+		assertTrue(chapter.contains("Zur Einführung."));
+		
+		// the parent entry covers the text of all its children.
+		String parent = doc.getChapterText(1);
+		assertTrue(parent.contains(doc.getChapterText(toc.getLastChild(1))));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testChapterTextOfMissingEntry() throws IOException {
+		MobiDocument doc = createReader(getResourceData(JAPANESE_FAIRYTALES_MOBI));
+		doc.getChapterText(doc.getTableOfContents().size());
+	}
+
+	@Test
+	public void testRecreateTableOfContents() throws IOException {
+		MobiDocument doc = createReader(getResourceData(JAPANESE_FAIRYTALES_MOBI));
+		MobiTableOfContents toc = doc.getTableOfContents();
+		doc.setTextContent(doc.getTextContent());
+		
+		// the chapters are found by the links of the table of contents in the text.
+		MobiDocument newDoc = reReadDocument(doc);
+		MobiTableOfContents newToc = newDoc.getTableOfContents();
+		assertEquals(newDoc.getMobiHeader().getFirstNonBookIndex(), newDoc.getMobiHeader().getIndxRecordIndex());
+		assertEquals(25, newToc.size());
+		for (int i = 0, entry = 2; i < newToc.size(); i++, entry++) {
+			while (toc.getPosition(entry) < newToc.getPosition(i)) {
+				entry++;
+			}
+			assertEquals(toc.getPosition(entry), newToc.getPosition(i));
+			assertEquals(toc.getName(entry), newToc.getName(i));
+		}
+		assertEquals(toc.getPosition(27) + toc.getLength(27), newToc.getPosition(24) + newToc.getLength(24));
+		assertNotNull(newDoc.getCover());
+	}
+
+	@Test
+	public void testLookupWithoutDictionary() throws IOException {
+		MobiDocument doc = createReader(getResourceData(JAPANESE_FAIRYTALES_MOBI));
+		assertEquals(-1, doc.lookup("Urashima"));
+		assertNull(doc.resolveHeadword("Urashima"));
+	}
+
 	/**
 	 * Test the structure data of the known mobi file japanese_fairytales.mobi.
 	 */
@@ -50,6 +243,9 @@ public class MobiTestJapaneseTairytalesBook {
 		String textContent = doc.getTextContent();
 		assertTrue(textContent.startsWith("<html>"));
 		assertTrue(textContent.endsWith("</html>"));
+		try (Reader reader = doc.openTextReader()) {
+			assertEquals(textContent, IOUtils.toString(reader));
+		}
 
 		assertEquals(3, doc.getImages().size());
 		assertNotNull(doc.getCover());
@@ -116,5 +312,33 @@ public class MobiTestJapaneseTairytalesBook {
 		assertEquals("9783120048114", isbnRecord.getAsIsbn13());
 		assertEquals("3120048119", isbnRecord.getAsIsbn10());
 	}
-	
+
+	@Test
+	public void testRemoveAndAddSubjectRecords() throws IOException {
+		byte[] mobiData = IOUtils.toByteArray(getClass().getResourceAsStream(JAPANESE_FAIRYTALES_MOBI));
+		MobiDocument doc = readDoc(mobiData);
+		MobiMetaData metaData = doc.getMetaData();
+
+		List<StringRecordDelegate> subjectRecords = metaData.getSubjectRecords();
+		assertEquals(2, subjectRecords.size());
+		assertTrue(metaData.removeEXTHRecord(subjectRecords.get(0).getRecord()));
+		assertFalse(metaData.removeEXTHRecord(subjectRecords.get(0).getRecord()));
+		assertEquals("Folklore -- Japan", metaData.getSubjectRecords().get(0).getAsString(UTF_8));
+
+		metaData.addEXTHRecord(EXTHRecordFactory.createStringRecord(RECORD_TYPE.SUBJECT, "Myths", UTF_8));
+		assertEquals(2, metaData.getSubjectRecords().size());
+		assertEquals("Myths", metaData.getSubjectRecords().get(1).getAsString(UTF_8));
+		assertEquals(22, metaData.getEXTHRecords().size());
+
+		MobiDocument newDoc = reReadDocument(doc);
+		subjectRecords = newDoc.getMetaData().getSubjectRecords();
+		assertEquals(2, subjectRecords.size());
+		assertEquals("Folklore -- Japan", subjectRecords.get(0).getAsString(UTF_8));
+		assertEquals("Myths", subjectRecords.get(1).getAsString(UTF_8));
+
+		newDoc.getMetaData().removeAllEXTHRecords();
+		assertTrue(newDoc.getMetaData().getSubjectRecords().isEmpty());
+		assertTrue(newDoc.getMetaData().getEXTHRecords().isEmpty());
+	}
+
 }
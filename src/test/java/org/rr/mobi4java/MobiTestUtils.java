@@ -1,12 +1,15 @@
 package org.rr.mobi4java;
 
 import static org.junit.Assert.assertEquals;
+import static org.rr.mobi4java.ByteUtils.getU16;
+import static org.rr.mobi4java.ByteUtils.putU32;
 
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -45,6 +48,17 @@ public class MobiTestUtils {
 		return out.toByteArray();
 	}
 	
+	/**
+	 * Create a file with the PDB header and the record list of the given mobi data which has no records. The offset of the second record
+	 * points far behind the end of the file.
+	 */
+	static byte[] createCorruptRecordTable(byte[] mobiData) {
+		int recordCount = getU16(mobiData, 76);
+		byte[] corrupt = Arrays.copyOf(mobiData, 78 + recordCount * 8 + 2);
+		putU32(corrupt, 78 + 8, 0x7ff00000);
+		return corrupt;
+	}
+
 	static MobiDocument reReadDocument(MobiDocument doc) throws IOException {
 		byte[] newMobiData = writeDoc(doc);
 		MobiDocument newDoc = readDoc(newMobiData);
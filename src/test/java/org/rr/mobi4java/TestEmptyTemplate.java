@@ -2,19 +2,34 @@ package org.rr.mobi4java;
 
 import static org.apache.commons.lang3.CharEncoding.UTF_8;
 import static org.apache.commons.lang3.StringUtils.EMPTY;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.rr.mobi4java.MobiTestUtils.createJpegCover;
 import static org.rr.mobi4java.MobiTestUtils.reReadDocument;
+import static org.rr.mobi4java.MobiTestUtils.readDoc;
 import static org.rr.mobi4java.MobiTestUtils.verifyRecordIndices;
+import static org.rr.mobi4java.MobiTestUtils.writeDoc;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
+import org.rr.mobi4java.MobiContent.CONTENT_TYPE;
+import org.rr.mobi4java.MobiContentHeader.COMPRESSION_CODE;
+import org.rr.mobi4java.util.MobiLz77;
 
 public class TestEmptyTemplate {
 
@@ -35,6 +50,14 @@ public class TestEmptyTemplate {
 		verifyRecordIndices(newDoc.getMobiHeader(), newDoc.getMobiContents());
 	}
 
+	@Test
+	public void testTextContentWithInvalidTextLength() throws IOException {
+		MobiDocument doc = new MobiReader().empty();
+		doc.getMobiHeader().setTextLength(0x7ffffff0);
+		// the padding of the text record is not cut anymore.
+		assertTrue(doc.getTextContent().startsWith("<html><head><guide></guide></head><body><p></p></body></html>"));
+	}
+
 	@Test
 	public void testCreateNewMobiDocumentAndAddThumbnailAndCover() throws IOException {
 		MobiDocument doc = new MobiReader().empty();
@@ -105,4 +128,299 @@ public class TestEmptyTemplate {
 		
 		assertEquals(newContent, newDoc.getTextContent());
 	}
+
+	@Test
+	public void testCreateNewMobiDocumentAndChangeContentCompressed() throws IOException {
+		MobiDocument doc = new MobiReader().empty();
+		
+		Random random = new Random(4711);
+		StringBuilder b = new StringBuilder();
+		for(int i = 0; i < 5000; i++) {
+			b.append("<p>Kapitel ").append(random.nextInt(100)).append(" über die Märchen</p>");
+		}
+		
+		String newContent = "<html><head></head><body>" + b + "</body></html>";
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			doc.setExecutor(executor);
+			doc.setTextContent(newContent, COMPRESSION_CODE.PALM_DOC);
+		} finally {
+			executor.shutdown();
+		}
+		
+		byte[] compressed = writeDoc(doc);
+		MobiDocument newDoc = readDoc(compressed);
+		
+		assertEquals(COMPRESSION_CODE.PALM_DOC, newDoc.getMobiHeader().getCompressionCode());
+		assertEquals(newContent.getBytes(UTF_8).length, newDoc.getMobiHeader().getTextLength());
+		assertEquals(newContent, newDoc.getTextContent());
+		
+		doc.setTextContent(newContent);
+		assertTrue(compressed.length < writeDoc(doc).length / 2);
+	}
+
+	@Test
+	public void testSetTextContentCreatesTableOfContents() throws IOException {
+		MobiDocument doc = new MobiReader().empty();
+		byte[] cover = createJpegCover(100, 200);
+		doc.setCover(cover);
+		
+		StringBuilder b = new StringBuilder("<html><head></head><body><h1>Titel</h1>");
+		for(int i = 0; i < 5000; i++) {
+			b.append("<mbp:pagebreak/><h2 class=\"chapter\"><i>Kapitel</i> ").append(i).append(" &amp; Ende</h2><p>Es war einmal.</p>");
+		}
+		b.append("</body></html>");
+		String newContent = b.toString();
+		doc.setTextContent(newContent, COMPRESSION_CODE.PALM_DOC);
+		
+		MobiDocument newDoc = reReadDocument(doc);
+		verifyRecordIndices(newDoc.getMobiHeader(), newDoc.getMobiContents());
+		assertTrue(Arrays.equals(cover, newDoc.getCover()));
+		assertEquals(newContent, newDoc.getTextContent());
+		
+		MobiTableOfContents toc = newDoc.getTableOfContents();
+		assertEquals(5000, toc.size());
+		assertTrue(newDoc.getMobiContents().size() > newDoc.getMobiHeader().getIndxRecordIndex() + 3);
+		int textLength = newContent.getBytes(UTF_8).length;
+		for (int i = 0; i < toc.size(); i++) {
+			assertEquals("Kapitel " + i + " & Ende", toc.getName(i));
+			assertEquals(0, toc.getDepth(i));
+			assertTrue(newDoc.getText(toc.getPosition(i), 4).startsWith("<h2"));
+			int end = i + 1 < toc.size() ? toc.getPosition(i + 1) : textLength;
+			assertEquals(end, toc.getPosition(i) + toc.getLength(i));
+		}
+		
+		newDoc.setTextContent("<html><body><h1>Titel</h1></body></html>");
+		assertTrue(newDoc.getTableOfContents().isEmpty());
+		assertEquals(-1, newDoc.getMobiHeader().getIndxRecordIndex());
+		assertTrue(Arrays.equals(cover, reReadDocument(newDoc).getCover()));
+	}
+
+	@Test
+	public void testTableOfContentsWithTooLongLabel() throws IOException {
+		MobiDocument doc = new MobiReader().empty();
+		String label = StringUtils.repeat("€", 30000);
+		doc.setTextContent("<html><body><mbp:pagebreak/><h2>" + label + "</h2><p>Es war einmal.</p><mbp:pagebreak/><h2>Ende</h2></body></html>");
+
+		MobiTableOfContents toc = reReadDocument(doc).getTableOfContents();
+		assertEquals(2, toc.size());
+		// the label is cut behind the last three byte character which fits into a CNCX record.
+		assertEquals(label.substring(0, (0xfc00 - 8) / 3), toc.getName(0));
+		assertEquals("Ende", toc.getName(1));
+	}
+
+	@Test
+	public void testTableOfContentsLabelEntities() throws IOException {
+		MobiDocument doc = new MobiReader().empty();
+		String label = "Caf&eacute;&nbsp;&#252;ber &#x2013; &lt;1&gt; &unknown; &#xZZ; &amp;amp;";
+		doc.setTextContent("<html><body><mbp:pagebreak/><h2>" + label + "</h2></body></html>");
+
+		MobiTableOfContents toc = reReadDocument(doc).getTableOfContents();
+		assertEquals(1, toc.size());
+		assertEquals("Caf\u00e9 \u00fcber \u2013 <1> &unknown; &#xZZ; &amp;", toc.getName(0));
+	}
+
+	@Test
+	public void testParallelTextContentDecoding() throws IOException {
+		MobiDocument doc = new MobiReader().empty();
+		StringBuilder b = new StringBuilder();
+		for(int i = 0; i < 20000; i++) {
+			b.append("<p>Absatz ").append(i).append(" – ein schöner Tag</p>");
+		}
+		String newContent = "<html><head></head><body>" + b + "</body></html>";
+		doc.setTextContent(newContent, COMPRESSION_CODE.PALM_DOC);
+		MobiDocument newDoc = reReadDocument(doc);
+		
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+		try {
+			newDoc.setExecutor(executor);
+			newDoc.setParallelDecodeThreshold(Integer.MAX_VALUE);
+			assertEquals(newContent, newDoc.getTextContent());
+			assertEquals(0, executor.getTaskCount());
+			
+			newDoc.setParallelDecodeThreshold(2);
+			assertEquals(newContent, newDoc.getTextContent());
+			assertEquals(newDoc.getMobiHeader().getRecordCount(), executor.getTaskCount());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testOpenTextReader() throws IOException {
+		MobiDocument doc = new MobiReader().empty();
+		StringBuilder b = new StringBuilder("<html><head></head><body>");
+		// the first record ends in the middle of the two byte ü
+		b.append(StringUtils.repeat('a', 4096 - b.length() - 1));
+		for(int i = 0; i < 2000; i++) {
+			b.append("über – Märchen ").append(i).append(' ');
+		}
+		b.append("</body></html>");
+		String newContent = b.toString();
+		doc.setTextContent(newContent, COMPRESSION_CODE.PALM_DOC);
+		MobiDocument newDoc = reReadDocument(doc);
+		
+		try (InputStream in = newDoc.openTextStream()) {
+			assertArrayEquals(newContent.getBytes(UTF_8), IOUtils.toByteArray(in));
+		}
+		try (Reader reader = newDoc.openTextReader()) {
+			StringBuilder text = new StringBuilder();
+			char[] buffer = new char[100];
+			int read;
+			while((read = reader.read(buffer)) != -1) {
+				text.append(buffer, 0, read);
+			}
+			assertEquals(newContent, text.toString());
+		}
+	}
+
+	@Test
+	public void testTextRecordsWithTrailingEntries() throws IOException {
+		MobiDocument doc = new MobiReader().empty();
+		StringBuilder b = new StringBuilder();
+		for(int i = 0; i < 1000; i++) {
+			// control characters are valid text and must not be removed with the trailing entries
+			b.append("<p>Absatz \u0001").append(i).append("\u0008 über</p>");
+		}
+		String newContent = "<html><head></head><body>" + b + "</body></html>";
+		doc.setTextContent(newContent, COMPRESSION_CODE.PALM_DOC);
+		assertEquals(0, doc.getMobiHeader().getExtraRecordDataFlags());
+		
+		// append a multibyte overlap entry with one byte and a trailing entry of three bytes to each text record
+		for (MobiContent mobiContent : doc.getMobiContents()) {
+			if(mobiContent.getType() == CONTENT_TYPE.CONTENT) {
+				byte[] content = mobiContent.getContent();
+				byte[] withTrailingEntries = Arrays.copyOf(content, content.length + 5);
+				withTrailingEntries[content.length] = (byte) 0xbc;
+				withTrailingEntries[content.length + 1] = 0x01;
+				withTrailingEntries[content.length + 2] = 0x05;
+				withTrailingEntries[content.length + 3] = 0x02;
+				withTrailingEntries[content.length + 4] = (byte) 0x83;
+				mobiContent.setContent(withTrailingEntries);
+			}
+		}
+		doc.getMobiHeader().setExtraRecordDataFlags(0x03);
+		
+		MobiDocument newDoc = reReadDocument(doc);
+		assertEquals(0x03, newDoc.getMobiHeader().getExtraRecordDataFlags());
+		assertEquals(newContent, newDoc.getTextContent());
+		newDoc.setParallelDecodeThreshold(2);
+		assertEquals(newContent, newDoc.getTextContent());
+	}
+
+	@Test
+	public void testGetTextRange() throws IOException {
+		MobiDocument doc = new MobiReader().empty();
+		StringBuilder b = new StringBuilder();
+		for(int i = 0; i < 3000; i++) {
+			b.append("<p>Absatz ").append(i).append(" über</p>");
+		}
+		String newContent = "<html><head></head><body>" + b + "</body></html>";
+		doc.setTextContent(newContent, COMPRESSION_CODE.PALM_DOC);
+		byte[] text = newContent.getBytes(UTF_8);
+		
+		int offset = newContent.substring(0, newContent.indexOf("<p>Absatz 1000 ")).getBytes(UTF_8).length;
+		assertEquals("<p>Absatz 1000 über</p>", doc.getText(offset, 24));
+		// the ü is cut in half at both ends
+		assertEquals("ber</p><p>Absatz 1001 ", doc.getText(offset + 16, 23));
+		assertEquals(new String(text, 8000, 9000, UTF_8), doc.getText(8000, 9000));
+		
+		// the record size did not fit to the text records, so the record offsets are taken from the decompressed records
+		doc.getMobiHeader().setRecordSize(1024);
+		assertEquals(new String(text, 8000, 9000, UTF_8), doc.getText(8000, 9000));
+		assertEquals(newContent, doc.getText(0, Integer.MAX_VALUE));
+		
+		// a longer first record moves the exact offsets of all following records
+		doc.setTextContent(newContent, COMPRESSION_CODE.PALM_DOC);
+		doc.getMobiHeader().setRecordSize(1024);
+		assertEquals(new String(text, 4090, 10, UTF_8), doc.getText(4090, 10));
+		MobiContent firstRecord = MobiUtils.findContentsByType(doc.getMobiContents(), CONTENT_TYPE.CONTENT).get(0);
+		byte[] changed = (new String(text, 0, 4096, UTF_8) + "<p>neu</p>").getBytes(UTF_8);
+		firstRecord.setContent(MobiLz77.lz77Encode(changed));
+		assertEquals(new String(text, 4090, 6, UTF_8) + "<p>neu</p>" + new String(text, 4096, 4, UTF_8), doc.getText(4090, 20));
+	}
+
+	@Test
+	public void testParallelDecodingOfPaddedLastRecord() throws IOException {
+		MobiDocument doc = new MobiReader().empty();
+		String newContent = "<html><body>" + StringUtils.repeat("<p>Es war einmal.</p>", 8000) + "</body></html>";
+		doc.setTextContent(newContent, COMPRESSION_CODE.PALM_DOC);
+		MobiDocument newDoc = reReadDocument(doc);
+		int recordCount = newDoc.getMobiHeader().getRecordCount();
+		
+		// the last record is padded beyond the text length of the mobi header
+		int textLength = newDoc.getMobiHeader().getTextLength() - 10;
+		newDoc.getMobiHeader().setTextLength(textLength);
+		newDoc.setParallelDecodeThreshold(2);
+		MobiTextRecordCache cache = new MobiTextRecordCache(1024 * 1024);
+		newDoc.setTextRecordCache(cache);
+		assertEquals(new String(newContent.getBytes(UTF_8), 0, textLength, UTF_8), newDoc.getTextContent());
+		assertEquals(recordCount, cache.getMissCount());
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void testTextRecordCacheDoesNotKeepDocuments() throws IOException, InterruptedException {
+		MobiDocument doc = new MobiReader().empty();
+		doc.setTextContent("<html><body>" + StringUtils.repeat("<p>Es war einmal.</p>", 1000) + "</body></html>", COMPRESSION_CODE.PALM_DOC);
+		MobiTextRecordCache cache = new MobiTextRecordCache(1024 * 1024);
+		doc.setTextRecordCache(cache);
+		doc.getTextContent();
+		assertTrue(cache.getRecordCount() > 0);
+		
+		doc = null;
+		for (int i = 0; i < 100 && cache.getRecordCount() > 0; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertEquals(0, cache.getRecordCount());
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void testTextRecordCache() throws IOException {
+		MobiDocument doc = new MobiReader().empty();
+		StringBuilder b = new StringBuilder();
+		for(int i = 0; i < 3000; i++) {
+			b.append("<p>Absatz ").append(i).append(" über</p>");
+		}
+		String newContent = "<html><head></head><body>" + b + "</body></html>";
+		doc.setTextContent(newContent, COMPRESSION_CODE.PALM_DOC);
+		MobiDocument newDoc = reReadDocument(doc);
+		int recordCount = newDoc.getMobiHeader().getRecordCount();
+		
+		MobiTextRecordCache cache = new MobiTextRecordCache(1024 * 1024);
+		newDoc.setTextRecordCache(cache);
+		assertEquals(newContent, newDoc.getTextContent());
+		assertEquals(0, cache.getHitCount());
+		assertEquals(recordCount, cache.getMissCount());
+		assertEquals(newContent.getBytes(UTF_8).length, cache.getSize());
+		
+		assertEquals(newContent, newDoc.getTextContent());
+		assertEquals(recordCount, cache.getHitCount());
+		assertEquals("<html>", newDoc.getText(0, 6));
+		assertEquals(recordCount + 1, cache.getHitCount());
+		
+		// a changed record is decompressed again
+		MobiContent firstRecord = MobiUtils.findContentsByType(newDoc.getMobiContents(), CONTENT_TYPE.CONTENT).get(0);
+		firstRecord.setContent(MobiLz77.lz77Encode(Arrays.copyOf(newContent.getBytes(UTF_8), 4096)));
+		assertEquals("<html>", newDoc.getText(0, 6));
+		assertEquals(recordCount + 1, cache.getHitCount());
+		assertEquals(recordCount + 1, cache.getMissCount());
+		
+		newDoc.setTextContent("<html><body>changed</body></html>");
+		assertEquals(0, cache.getRecordCount());
+		assertEquals("<html><body>changed</body></html>", newDoc.getTextContent());
+		assertEquals(1, cache.getRecordCount());
+		
+		// the least recently used records are evicted to stay within the maximum size
+		MobiTextRecordCache smallCache = new MobiTextRecordCache(4096 * 2);
+		MobiDocument otherDoc = reReadDocument(doc);
+		otherDoc.setTextRecordCache(smallCache);
+		assertEquals(newContent, otherDoc.getTextContent());
+		assertEquals(2, smallCache.getRecordCount());
+		assertEquals(recordCount - 2, smallCache.getEvictionCount());
+		assertEquals(newContent.substring(newContent.length() - 20), otherDoc.getText(newContent.getBytes(UTF_8).length - 20, 20));
+		assertEquals(1, smallCache.getHitCount());
+	}
 }
@@ -0,0 +1,153 @@
+package org.rr.mobi4java.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.rr.mobi4java.ByteUtils.putU32;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests the HUFF/CDIC decoder with synthetic code tables. Phrases 0 - 255 are the single bytes 0 - 255 and are encoded with the 16 bit codes
+ * <code>0x00, 255 - phrase</code> which are resolved with the code length search. Phrases 256 - 510 are encoded with the 8 bit codes
+ * <code>511 - phrase</code> which are resolved with the 8 bit lookup table.
+ */
+public class MobiHuffCdicTest {
+
+	private static final int HELLO = 256;
+
+	/** Phrase which is compressed and expands to two times {@link #HELLO}. */
+	private static final int HELLO_HELLO = 257;
+
+	/** Phrase which is compressed and references the compressed {@link #HELLO_HELLO} phrase. */
+	private static final int HELLO_HELLO_X = 258;
+
+	private static final int PHRASE_COUNT = 511;
+
+	@Test
+	public void testDecodeSingleBytePhrases() throws IOException {
+		MobiHuffCdic huffCdic = createDecoder();
+		byte[] text = "Japanese Fairy Tales".getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+		for (byte b : text) {
+			writeCode(encoded, b & 0xff);
+		}
+		assertArrayEquals(text, huffCdic.decode(encoded.toByteArray()));
+	}
+
+	@Test
+	public void testDecodeCompressedPhrases() throws IOException {
+		MobiHuffCdic huffCdic = createDecoder();
+		ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+		writeCode(encoded, HELLO_HELLO_X);
+		writeCode(encoded, '!');
+		writeCode(encoded, HELLO_HELLO);
+		assertEquals("hello hello X!hello hello ", new String(huffCdic.decode(encoded.toByteArray()), StandardCharsets.UTF_8));
+
+		// the expanded phrases are kept for the next record
+		encoded.reset();
+		writeCode(encoded, HELLO_HELLO);
+		writeCode(encoded, HELLO);
+		assertEquals("hello hello hello ", new String(huffCdic.decode(encoded.toByteArray()), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testDecodeEmptyRecord() throws IOException {
+		assertEquals(0, createDecoder().decode(new byte[0]).length);
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidHuffRecord() throws IOException {
+		byte[] huff = createHuff();
+		huff[0] = 'X';
+		new MobiHuffCdic(huff);
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnknownPhrase() throws IOException {
+		MobiHuffCdic huffCdic = new MobiHuffCdic(createHuff());
+		huffCdic.addCdic(createCdic(createPhrases(), 0, 256));
+		huffCdic.decode(new byte[] { (byte) (511 - HELLO) });
+	}
+
+	private static MobiHuffCdic createDecoder() throws IOException {
+		byte[][] phrases = createPhrases();
+		MobiHuffCdic huffCdic = new MobiHuffCdic(createHuff());
+		huffCdic.addCdic(createCdic(phrases, 0, 256));
+		huffCdic.addCdic(createCdic(phrases, 256, PHRASE_COUNT - 256));
+		return huffCdic;
+	}
+
+	private static void writeCode(ByteArrayOutputStream out, int phrase) {
+		if (phrase < 256) {
+			out.write(0);
+			out.write(255 - phrase);
+		} else {
+			out.write(511 - phrase);
+		}
+	}
+
+	/**
+	 * Create the phrases, the first byte of each phrase is the expanded flag.
+	 */
+	private static byte[][] createPhrases() {
+		byte[][] phrases = new byte[PHRASE_COUNT][];
+		for (int i = 0; i < 256; i++) {
+			phrases[i] = new byte[] { 1, (byte) i };
+		}
+		for (int i = 256; i < PHRASE_COUNT; i++) {
+			phrases[i] = new byte[] { 1, '#' };
+		}
+		phrases[HELLO] = new byte[] { 1, 'h', 'e', 'l', 'l', 'o', ' ' };
+		phrases[HELLO_HELLO] = new byte[] { 0, (byte) (511 - HELLO), (byte) (511 - HELLO) };
+		phrases[HELLO_HELLO_X] = new byte[] { 0, (byte) (511 - HELLO_HELLO), 0, (byte) (255 - 'X') };
+		return phrases;
+	}
+
+	private static byte[] createHuff() {
+		byte[] huff = new byte[24 + 256 * 4 + 64 * 4];
+		System.arraycopy(new byte[] { 'H', 'U', 'F', 'F', 0, 0, 0, 0x18 }, 0, huff, 0, 8);
+		int dict1Offset = 24;
+		int dict2Offset = dict1Offset + 256 * 4;
+		putU32(huff, 8, dict1Offset);
+		putU32(huff, 12, dict2Offset);
+
+		// codes starting with a zero byte are 16 bit long, all others are 8 bit long.
+		putU32(huff, dict1Offset, 9);
+		for (int i = 1; i < 256; i++) {
+			putU32(huff, dict1Offset + i * 4, 8 | 0x80 | (511 << 8));
+		}
+		for (int codeLength = 9; codeLength < 16; codeLength++) {
+			putU32(huff, dict2Offset + (codeLength - 1) * 8, 1 << (codeLength - 8));
+		}
+		putU32(huff, dict2Offset + 15 * 8, 0);
+		putU32(huff, dict2Offset + 15 * 8 + 4, 255);
+		return huff;
+	}
+
+	private static byte[] createCdic(byte[][] phrases, int first, int count) {
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		byte[] offsets = new byte[count * 2];
+		for (int i = 0; i < count; i++) {
+			byte[] phrase = phrases[first + i];
+			int offset = offsets.length + data.size();
+			offsets[i * 2] = (byte) (offset >> 8);
+			offsets[i * 2 + 1] = (byte) offset;
+			int length = (phrase.length - 1) | (phrase[0] == 1 ? 0x8000 : 0);
+			data.write(length >> 8);
+			data.write(length);
+			data.write(phrase, 1, phrase.length - 1);
+		}
+
+		byte[] cdic = new byte[16 + offsets.length + data.size()];
+		System.arraycopy(new byte[] { 'C', 'D', 'I', 'C', 0, 0, 0, 0x10 }, 0, cdic, 0, 8);
+		putU32(cdic, 8, PHRASE_COUNT);
+		putU32(cdic, 12, 8);
+		System.arraycopy(offsets, 0, cdic, 16, offsets.length);
+		System.arraycopy(data.toByteArray(), 0, cdic, 16 + offsets.length, data.size());
+		return cdic;
+	}
+}
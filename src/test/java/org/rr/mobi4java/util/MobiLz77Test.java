@@ -1,13 +1,20 @@
 package org.rr.mobi4java.util;
 
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.Test;
+import org.rr.mobi4java.util.MobiLz77.COMPRESSION_LEVEL;
 
 public class MobiLz77Test {
 	
@@ -22,4 +29,98 @@ public class MobiLz77Test {
 		String reEncoded = MobiLz77.lz77DecodeToString(encoded, StandardCharsets.UTF_8.toString());
 		assertEquals(example, reEncoded);
 	}
+
+	@Test
+	public void testEncodeDecodeRandomData() {
+		Random random = new Random(4711);
+		for (int size : new int[] {0, 1, 2, 3, 11, 4096, 20000}) {
+			byte[] data = new byte[size];
+			random.nextBytes(data);
+			assertArrayEquals(data, MobiLz77.lz77Decode(MobiLz77.lz77Encode(data)));
+		}
+	}
+
+	@Test
+	public void testEncodeRepetitions() {
+		byte[] data = new byte[4096];
+		Arrays.fill(data, (byte) 'a');
+		byte[] encoded = MobiLz77.lz77Encode(data);
+		assertArrayEquals(data, MobiLz77.lz77Decode(encoded));
+		// one literal and overlapping back references with the maximum length of 10 bytes
+		assertTrue(encoded.length < 4096 / 10 * 2 + 4);
+	}
+
+	@Test
+	public void testEncodeRepetitionBeyondMaximumDistance() {
+		Random random = new Random(42);
+		byte[] block = new byte[3000];
+		for (int i = 0; i < block.length; i++) {
+			block[i] = (byte) ('a' + random.nextInt(26));
+		}
+		byte[] data = new byte[block.length * 2];
+		System.arraycopy(block, 0, data, 0, block.length);
+		System.arraycopy(block, 0, data, block.length, block.length);
+		assertArrayEquals(data, MobiLz77.lz77Decode(MobiLz77.lz77Encode(data)));
+	}
+
+	@Test
+	public void testDecodeIntoBuffer() throws UnsupportedEncodingException {
+		byte[] data = URLDecoder.decode(EXAMPLE_STRING, "UTF-8").getBytes("UTF-8");
+		byte[] encoded = MobiLz77.lz77Encode(data);
+		
+		byte[] input = new byte[encoded.length + 10];
+		System.arraycopy(encoded, 0, input, 5, encoded.length);
+		byte[] out = new byte[data.length + 3];
+		assertEquals(data.length, MobiLz77.lz77Decode(input, 5, encoded.length, out, 3));
+		assertArrayEquals(data, Arrays.copyOfRange(out, 3, out.length));
+		
+		ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length);
+		direct.put(encoded).flip();
+		ByteBuffer dst = ByteBuffer.allocate(data.length + 10);
+		assertEquals(data.length, MobiLz77.lz77Decode(direct.asReadOnlyBuffer(), dst));
+		assertEquals(data.length, dst.position());
+		assertArrayEquals(data, Arrays.copyOf(dst.array(), data.length));
+	}
+
+	@Test(expected = BufferOverflowException.class)
+	public void testDecodeOverflow() {
+		byte[] data = new byte[4096];
+		Arrays.fill(data, (byte) 'a');
+		byte[] encoded = MobiLz77.lz77Encode(data);
+		MobiLz77.lz77Decode(encoded, 0, encoded.length, new byte[4095], 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecodeInvalidBackReference() {
+		// a back reference with distance 2 after a single literal
+		byte[] encoded = new byte[] { 'a', (byte) 0x80, 0x10 };
+		MobiLz77.lz77Decode(encoded);
+	}
+
+	@Test
+	public void testCompressionLevels() throws UnsupportedEncodingException {
+		Random random = new Random(4711);
+		StringBuilder text = new StringBuilder();
+		while (text.length() < 4096) {
+			text.append("<p>Kapitel ").append(random.nextInt(100)).append(" Die Märchen der Brüder Grimm</p> ");
+		}
+		byte[] data = text.substring(0, 4096).getBytes("UTF-8");
+		
+		byte[] fast = MobiLz77.lz77Encode(data, COMPRESSION_LEVEL.FAST);
+		byte[] normal = MobiLz77.lz77Encode(data, COMPRESSION_LEVEL.NORMAL);
+		byte[] max = MobiLz77.lz77Encode(data, COMPRESSION_LEVEL.MAX);
+		assertArrayEquals(data, MobiLz77.lz77Decode(fast));
+		assertArrayEquals(data, MobiLz77.lz77Decode(normal));
+		assertArrayEquals(data, MobiLz77.lz77Decode(max));
+		assertArrayEquals(normal, MobiLz77.lz77Encode(data));
+		assertTrue(max.length <= normal.length);
+		assertTrue(max.length <= fast.length);
+		
+		for (int size : new int[] {0, 1, 2, 3, 11, 4096}) {
+			byte[] randomData = new byte[size];
+			random.nextBytes(randomData);
+			assertArrayEquals(randomData, MobiLz77.lz77Decode(MobiLz77.lz77Encode(randomData, COMPRESSION_LEVEL.MAX)));
+			assertArrayEquals(randomData, MobiLz77.lz77Decode(MobiLz77.lz77Encode(randomData, COMPRESSION_LEVEL.FAST)));
+		}
+	}
 }